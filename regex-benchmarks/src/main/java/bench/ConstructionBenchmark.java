@@ -0,0 +1,72 @@
+package bench;
+
+import dfa.DFA;
+import expr.Expression;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the construction of automata: compiling an expression to an NFA, and
+ * determinizing, minimizing and reversing the NFA.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"LITERAL", "UNION", "NESTED_STAR", "BLOWUP"})
+    public PatternFamily family;
+
+    @Param({"4", "8", "12"})
+    public int size;
+
+    @Setup
+    public void setUp() {
+        expr = family.expression(size);
+        nfa = expr.compile();
+    }
+
+    @Benchmark
+    public NFA compile() {
+        return expr.compile();
+    }
+
+    @Benchmark
+    public DFA determinize() {
+        return NFAOperations.determinize(nfa);
+    }
+
+    @Benchmark
+    public DFA minimizeBrzozowski() {
+        return NFAOperations.minimize(nfa, MinimizationAlgorithm.BRZOZOWSKI);
+    }
+
+    @Benchmark
+    public DFA minimizeHopcroft() {
+        return NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+    }
+
+    @Benchmark
+    public NFA reversal() {
+        return NFAOperations.reversalNFA(nfa);
+    }
+
+    private Expression expr;
+    private NFA nfa;
+}
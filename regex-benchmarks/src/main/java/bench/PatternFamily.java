@@ -0,0 +1,144 @@
+package bench;
+
+import expr.Expr;
+import expr.Expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Families of patterns that are used in the benchmarks. Every family is parameterized by a
+ * size, and can generate inputs of a given length that are in its language, so that
+ * recognition does not stop before the end of the input.
+ */
+public enum PatternFamily {
+    /**
+     * A repeated literal of <i>size</i> characters: <i>(abcd...)+</i>.
+     */
+    LITERAL {
+        @Override
+        public Expression expression(int size) {
+            return Expr.plus(Expr.str(literal(size)));
+        }
+
+        @Override
+        public String input(int size, int length) {
+            return repeat(Collections.singletonList(literal(size)), length);
+        }
+    },
+
+    /**
+     * A repeated union of <i>size</i> words over <i>{a, b, c}</i>, that share prefixes:
+     * <i>(ca|cb|cba|cbb|...)+</i>.
+     */
+    UNION {
+        @Override
+        public Expression expression(int size) {
+            List<String> words = words(size);
+            Expression expr = Expr.str(words.get(0));
+            for (int i = 1; i < words.size(); ++i)
+                expr = Expr.or(expr, Expr.str(words.get(i)));
+
+            return Expr.plus(expr);
+        }
+
+        @Override
+        public String input(int size, int length) {
+            return repeat(words(size), length);
+        }
+    },
+
+    /**
+     * Stars nested <i>size</i> deep: <i>(((a*b)*c)*d...)*</i>.
+     */
+    NESTED_STAR {
+        @Override
+        public Expression expression(int size) {
+            Expression expr = Expr.ch('a');
+            for (int i = 1; i <= size; ++i)
+                expr = Expr.concat(Expr.star(expr), Expr.ch(letter(i)));
+
+            return Expr.star(expr);
+        }
+
+        @Override
+        public String input(int size, int length) {
+            return repeat(Collections.singletonList(literal(size + 1)), length);
+        }
+    },
+
+    /**
+     * <i>(a|b)*a(a|b)^size</i>, whose minimal DFA has <i>2^(size + 1)</i> states.
+     */
+    BLOWUP {
+        @Override
+        public Expression expression(int size) {
+            Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+            Expression expr = Expr.concat(Expr.star(ab), Expr.ch('a'));
+            for (int i = 0; i < size; ++i)
+                expr = Expr.concat(expr, ab);
+
+            return expr;
+        }
+
+        @Override
+        public String input(int size, int length) {
+            Random random = new Random(42);
+            char[] input = new char[Math.max(length, size + 1)];
+            for (int i = 0; i < input.length; ++i)
+                input[i] = random.nextBoolean() ? 'a' : 'b';
+            input[input.length - size - 1] = 'a';
+
+            return new String(input);
+        }
+    };
+
+    /**
+     * Get the pattern of the given size.
+     */
+    public abstract Expression expression(int size);
+
+    /**
+     * Get a string of approximately the given length that is recognized by the pattern of
+     * the given size.
+     */
+    public abstract String input(int size, int length);
+
+    private static char letter(int i) {
+        return (char) ('a' + i % 26);
+    }
+
+    private static String literal(int size) {
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < size; ++i)
+            literal.append(letter(i));
+
+        return literal.toString();
+    }
+
+    /**
+     * The words <i>c</i> followed by the binary representation of <i>2..size + 1</i> without
+     * its leading one, with <i>a</i> for 0 and <i>b</i> for 1.
+     */
+    private static List<String> words(int size) {
+        List<String> words = new ArrayList<>();
+        for (int i = 2; i < size + 2; ++i)
+            words.add("c" + Integer.toBinaryString(i).substring(1).replace('0', 'a').replace('1', 'b'));
+
+        return words;
+    }
+
+    /**
+     * Concatenate the words round-robin, up to the given length, but at least one word.
+     */
+    private static String repeat(List<String> words, int length) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; input.length() == 0 || input.length() + words.get(i).length() <= length;
+             i = (i + 1) % words.size())
+            input.append(words.get(i));
+
+        return input.toString();
+    }
+}
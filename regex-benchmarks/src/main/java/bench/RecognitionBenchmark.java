@@ -0,0 +1,87 @@
+package bench;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFAOperations;
+import nfa.NFASimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of recognition with the NFA of a pattern, its minimal DFA, and the compiled
+ * form of the minimal DFA. The inputs are in the language of the pattern, so the whole
+ * input is read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecognitionBenchmark {
+    @Param({"LITERAL", "UNION", "NESTED_STAR", "BLOWUP"})
+    public PatternFamily family;
+
+    @Param({"4", "12"})
+    public int size;
+
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    @Setup
+    public void setUp() {
+        nfa = family.expression(size).compile();
+        simulator = new NFASimulator(nfa);
+        dfa = NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+        compiledDFA = dfa.compile();
+        input = family.input(size, length);
+
+        if (!nfa.recognize(input) || !dfa.recognize(input) || !compiledDFA.recognize(input))
+            throw new IllegalStateException("The input is not recognized by " + family + " " + size);
+    }
+
+    /**
+     * Simulate the NFA with a simulator that is reused between calls.
+     */
+    @Benchmark
+    public boolean nfaRecognize() {
+        return simulator.recognize(input);
+    }
+
+    /**
+     * {@link NFA#recognize(String)}, which also converts the NFA to a compact NFA on every call.
+     */
+    @Benchmark
+    public boolean nfaRecognizeWithSetup() {
+        return nfa.recognize(input);
+    }
+
+    @Benchmark
+    public boolean dfaRecognize() {
+        return dfa.recognize(input);
+    }
+
+    @Benchmark
+    public boolean compiledDFARecognize() {
+        return compiledDFA.recognize(input);
+    }
+
+    private NFA nfa;
+    private NFASimulator simulator;
+    private DFA dfa;
+    private CompiledDFA compiledDFA;
+    private String input;
+}
@@ -0,0 +1,236 @@
+package alphabet;
+
+import com.google.common.base.Preconditions;
+
+import java.util.*;
+
+/**
+ * Partition of the characters into equivalence classes, such that all characters of a
+ * class are treated the same by the transitions of an automaton: two characters are in the
+ * same class when they occur in exactly the same transition ranges.
+ * <p>
+ * The character space is first split into intervals at the boundaries of the transition
+ * ranges, intervals that are covered by the same ranges are then merged into one class.
+ * A class can therefore consist of several intervals. For instance, the ranges
+ * <i>[a-z]</i> and <i>[m]</i> give three classes: <i>[m]</i>, <i>[a-l][n-z]</i> and all
+ * other characters.
+ * <p>
+ * This allows algorithms to iterate over classes rather than over individual characters,
+ * and allows transition tables to have one column per class.
+ */
+public final class Alphabet {
+    private Alphabet(int[] starts, char[] intervalClasses, int nClasses) {
+        this.starts = starts;
+        this.intervalClasses = intervalClasses;
+        this.nClasses = nClasses;
+
+        latin1 = new char[LATIN1_SIZE];
+        for (char c = 0; c < LATIN1_SIZE; ++c)
+            latin1[c] = intervalClasses[interval(c)];
+
+        classIntervals = new int[nClasses][];
+        int[] counts = new int[nClasses];
+        for (char cls : intervalClasses)
+            ++counts[cls];
+        for (int cls = 0; cls < nClasses; ++cls)
+            classIntervals[cls] = new int[counts[cls]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < intervalClasses.length; ++i)
+            classIntervals[intervalClasses[i]][counts[intervalClasses[i]]++] = i;
+    }
+
+    /**
+     * Compute the equivalence classes for the given transition ranges.
+     */
+    public static Alphabet of(Iterable<CharRange> ranges) {
+        Preconditions.checkNotNull(ranges);
+
+        // Distinct ranges, ordered by their first character.
+        SortedSet<CharRange> distinct = new TreeSet<>();
+        for (CharRange range : ranges)
+            distinct.add(range);
+        CharRange[] sorted = distinct.toArray(new CharRange[distinct.size()]);
+
+        BitSet boundaries = new BitSet(Character.MAX_VALUE + 2);
+        boundaries.set(0);
+        for (CharRange range : sorted) {
+            boundaries.set(range.getLo());
+            boundaries.set(range.getHi() + 1);
+        }
+        boundaries.clear(Character.MAX_VALUE + 1);
+
+        int[] starts = new int[boundaries.cardinality()];
+        for (int i = 0, b = boundaries.nextSetBit(0); b != -1; b = boundaries.nextSetBit(b + 1))
+            starts[i++] = b;
+
+        // Sweep over the intervals, keeping track of the ranges that cover the current
+        // interval. Intervals with the same set of covering ranges get the same class.
+        Map<Signature, Integer> classes = new HashMap<>();
+        char[] intervalClasses = new char[starts.length];
+        int[] active = new int[sorted.length];
+        int nActive = 0;
+        int next = 0;
+        for (int i = 0; i < starts.length; ++i) {
+            int start = starts[i];
+
+            int nStillActive = 0;
+            for (int j = 0; j < nActive; ++j)
+                if (sorted[active[j]].getHi() >= start)
+                    active[nStillActive++] = active[j];
+            nActive = nStillActive;
+            for (; next < sorted.length && sorted[next].getLo() == start; ++next)
+                active[nActive++] = next;
+
+            int[] covering = Arrays.copyOf(active, nActive);
+            Arrays.sort(covering);
+            Signature signature = new Signature(covering);
+
+            Integer cls = classes.get(signature);
+            if (cls == null) {
+                cls = classes.size();
+                classes.put(signature, cls);
+            }
+            intervalClasses[i] = (char) cls.intValue();
+        }
+
+        return new Alphabet(starts, intervalClasses, classes.size());
+    }
+
+    /**
+     * Get the class of a character.
+     */
+    public int classOf(char c) {
+        if (c < LATIN1_SIZE)
+            return latin1[c];
+
+        return intervalClasses[interval(c)];
+    }
+
+    public int getNumberOfClasses() {
+        return nClasses;
+    }
+
+    /**
+     * Get a character that belongs to the given class.
+     */
+    public char representative(int cls) {
+        return (char) starts[classIntervals[cls][0]];
+    }
+
+    /**
+     * Get the characters of a class, as ordered, non-adjacent ranges.
+     */
+    public List<CharRange> ranges(int cls) {
+        List<CharRange> ranges = new ArrayList<>(classIntervals[cls].length);
+        for (int interval : classIntervals[cls])
+            ranges.add(intervalRange(interval));
+
+        return ranges;
+    }
+
+    /**
+     * Get the classes of the characters in a range. If the range is one of the ranges that
+     * the alphabet was computed for, the classes contain no characters outside the range.
+     *
+     * @return The distinct classes, in ascending order.
+     */
+    public int[] classes(CharRange range) {
+        Preconditions.checkNotNull(range);
+
+        int first = interval(range.getLo());
+        int last = interval(range.getHi());
+
+        BitSet classes = new BitSet(nClasses);
+        for (int i = first; i <= last; ++i)
+            classes.set(intervalClasses[i]);
+
+        int[] result = new int[classes.cardinality()];
+        for (int i = 0, cls = classes.nextSetBit(0); cls != -1; cls = classes.nextSetBit(cls + 1))
+            result[i++] = cls;
+
+        return result;
+    }
+
+    /**
+     * Merge classes of this alphabet. Class <i>c</i> becomes class <i>classMapping[c]</i> of
+     * the returned alphabet.
+     *
+     * @param classMapping The new class of every class, the new classes should be numbered
+     *                     <i>0..n-1</i> without gaps.
+     * @return The coarser partition.
+     */
+    public Alphabet coarsen(int[] classMapping) {
+        Preconditions.checkNotNull(classMapping);
+        Preconditions.checkArgument(classMapping.length == nClasses,
+                "Expected a mapping for %s classes, got %s", nClasses, classMapping.length);
+
+        int[] newStarts = new int[starts.length];
+        char[] newIntervalClasses = new char[starts.length];
+        int nIntervals = 0;
+        int nNewClasses = 0;
+        for (int i = 0; i < starts.length; ++i) {
+            int cls = classMapping[intervalClasses[i]];
+            Preconditions.checkArgument(cls >= 0 && cls <= Character.MAX_VALUE, "Invalid class: %s", cls);
+            nNewClasses = Math.max(nNewClasses, cls + 1);
+
+            // adjacent intervals of the same class become one interval
+            if (nIntervals != 0 && newIntervalClasses[nIntervals - 1] == cls)
+                continue;
+
+            newStarts[nIntervals] = starts[i];
+            newIntervalClasses[nIntervals++] = (char) cls;
+        }
+
+        return new Alphabet(Arrays.copyOf(newStarts, nIntervals),
+                Arrays.copyOf(newIntervalClasses, nIntervals), nNewClasses);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int cls = 0; cls < nClasses; ++cls)
+            sb.append(String.format("%d: %s\n", cls, ranges(cls)));
+        return sb.toString();
+    }
+
+    private int interval(char c) {
+        int idx = Arrays.binarySearch(starts, c);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    private CharRange intervalRange(int interval) {
+        char hi = interval + 1 < starts.length ? (char) (starts[interval + 1] - 1) : Character.MAX_VALUE;
+        return CharRange.of((char) starts[interval], hi);
+    }
+
+    /**
+     * The (sorted) indices of the ranges that cover an interval.
+     */
+    private static final class Signature {
+        private final int[] ranges;
+        private final int hash;
+
+        Signature(int[] ranges) {
+            this.ranges = ranges;
+            this.hash = Arrays.hashCode(ranges);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(ranges, ((Signature) o).ranges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final int LATIN1_SIZE = 256;
+
+    private final int[] starts;
+    private final char[] intervalClasses;
+    private final int nClasses;
+    private final char[] latin1;
+    private final int[][] classIntervals;
+}
@@ -0,0 +1,108 @@
+package alphabet;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An inclusive range of characters <i>[lo, hi]</i>, used as a transition label. A
+ * transition for a single character is a range where <i>lo == hi</i>.
+ * <p>
+ * Ranges are ordered by their first character and then by their last character.
+ */
+public final class CharRange implements Comparable<CharRange> {
+    /**
+     * The range that contains all characters.
+     */
+    public static final CharRange ANY = new CharRange(Character.MIN_VALUE, Character.MAX_VALUE);
+
+    private CharRange(char lo, char hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    /**
+     * Get the range that contains only the given character.
+     */
+    public static CharRange of(char c) {
+        if (c < SINGLETONS.length)
+            return SINGLETONS[c];
+
+        return new CharRange(c, c);
+    }
+
+    /**
+     * Get the range <i>[lo, hi]</i>.
+     */
+    public static CharRange of(char lo, char hi) {
+        Preconditions.checkArgument(lo <= hi, "Empty character range: %s-%s", lo, hi);
+
+        if (lo == hi)
+            return of(lo);
+
+        return new CharRange(lo, hi);
+    }
+
+    public char getLo() {
+        return lo;
+    }
+
+    public char getHi() {
+        return hi;
+    }
+
+    public boolean contains(char c) {
+        return c >= lo && c <= hi;
+    }
+
+    /**
+     * Get the number of characters in the range.
+     */
+    public int size() {
+        return hi - lo + 1;
+    }
+
+    @Override
+    public int compareTo(CharRange other) {
+        if (lo != other.lo)
+            return lo - other.lo;
+
+        return hi - other.hi;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CharRange))
+            return false;
+
+        CharRange other = (CharRange) o;
+        return lo == other.lo && hi == other.hi;
+    }
+
+    @Override
+    public int hashCode() {
+        return (lo << 16) | hi;
+    }
+
+    /**
+     * The range as a label: the character itself for single characters, <i>lo-hi</i>
+     * otherwise.
+     */
+    @Override
+    public String toString() {
+        if (lo == hi)
+            return Character.toString(lo);
+
+        return String.format("%c-%c", lo, hi);
+    }
+
+    private static final CharRange[] SINGLETONS = new CharRange[256];
+
+    static {
+        for (char c = 0; c < SINGLETONS.length; ++c)
+            SINGLETONS[c] = new CharRange(c, c);
+    }
+
+    private final char lo;
+    private final char hi;
+}
@@ -0,0 +1,165 @@
+package dfa;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the minimal acyclic DFA for a list of words, with the incremental algorithm of
+ * Daciuk, Mihov, Watson and Watson (2000). The words are added in lexicographic order. Only
+ * the path of the last word can still change, all other states are minimized already and
+ * kept in a register of unique states. When a word is added, the states of the previous word
+ * that are not on the common prefix are replaced by an equivalent state from the register,
+ * or added to the register.
+ * <p>
+ * The automaton is never larger than the minimal automaton plus the path of one word, so
+ * no intermediate NFA or determinization is needed.
+ */
+public final class AcyclicDFABuilder {
+    public AcyclicDFABuilder() {
+        register = new HashMap<>();
+        path = new ArrayList<>();
+        path.add(new DFAState(false));
+        previous = new StringBuilder();
+    }
+
+    /**
+     * Build the automaton for words in lexicographic order.
+     */
+    public static DFA fromSorted(Iterable<? extends CharSequence> words) {
+        Preconditions.checkNotNull(words);
+
+        AcyclicDFABuilder builder = new AcyclicDFABuilder();
+        for (CharSequence word : words)
+            builder.add(word);
+        return builder.build();
+    }
+
+    /**
+     * Build the automaton for words in any order. The words are sorted first, so memory use
+     * is proportional to the input rather than to the automaton.
+     */
+    public static DFA fromUnsorted(Iterable<? extends CharSequence> words) {
+        Preconditions.checkNotNull(words);
+
+        List<String> sorted = new ArrayList<>();
+        for (CharSequence word : words)
+            sorted.add(word.toString());
+        String[] array = sorted.toArray(new String[sorted.size()]);
+        Arrays.sort(array);
+
+        return fromSorted(Arrays.asList(array));
+    }
+
+    /**
+     * Add a word. The word should not precede the previously added word in lexicographic
+     * (UTF-16 code unit) order, duplicates are ignored.
+     *
+     * @param word The word.
+     */
+    public void add(CharSequence word) {
+        Preconditions.checkNotNull(word);
+        Preconditions.checkState(path != null, "The automaton has been built already");
+
+        int prefix = 0;
+        while (prefix < word.length() && prefix < previous.length() && word.charAt(prefix) == previous.charAt(prefix))
+            ++prefix;
+        boolean sorted = prefix == word.length() ? prefix == previous.length()
+                : prefix == previous.length() || word.charAt(prefix) > previous.charAt(prefix);
+        Preconditions.checkArgument(sorted, "Words are not sorted: %s after %s", word, previous);
+
+        minimizePath(prefix);
+
+        DFAState state = path.get(path.size() - 1);
+        for (int i = prefix; i < word.length(); ++i) {
+            DFAState next = new DFAState(false);
+            state.addTransition(word.charAt(i), next);
+            path.add(next);
+            state = next;
+        }
+        state.setAccept(true);
+
+        previous.setLength(0);
+        previous.append(word);
+    }
+
+    /**
+     * Build the automaton. No words can be added afterwards.
+     *
+     * @return The minimal automaton for the added words.
+     */
+    public DFA build() {
+        Preconditions.checkState(path != null, "The automaton has been built already");
+
+        minimizePath(0);
+        DFA dfa = new DFA(path.get(0));
+
+        path = null;
+        register = null;
+        return dfa;
+    }
+
+    /**
+     * Get the number of states in the register, these are the minimized states.
+     */
+    public int getRegisterSize() {
+        return register == null ? 0 : register.size();
+    }
+
+    /**
+     * Replace or register the states of the path of the previous word after <i>length</i>
+     * characters, from the end of the path backwards, and remove them from the path.
+     */
+    private void minimizePath(int length) {
+        for (int i = path.size() - 1; i > length; --i) {
+            DFAState child = path.get(i);
+            DFAState parent = path.get(i - 1);
+
+            StateKey key = new StateKey(child);
+            DFAState equivalent = register.get(key);
+            if (equivalent != null)
+                parent.addTransition(previous.charAt(i - 1), equivalent);
+            else
+                register.put(key, child);
+
+            path.remove(i);
+        }
+    }
+
+    /**
+     * Register key of a state: two states are equivalent when they have the same acceptance
+     * and the same transitions to the same (registered) states. States in the register do
+     * not change anymore, so the hash code is computed once.
+     */
+    private static final class StateKey {
+        StateKey(DFAState state) {
+            this.state = state;
+            hash = 31 * state.getTransitions().hashCode() + (state.isAccept() ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey))
+                return false;
+
+            DFAState other = ((StateKey) o).state;
+            return state.isAccept() == other.isAccept() && state.getTransitions().equals(other.getTransitions());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private final DFAState state;
+        private final int hash;
+    }
+
+    private Map<StateKey, DFAState> register;
+    private List<DFAState> path;
+    private final StringBuilder previous;
+}
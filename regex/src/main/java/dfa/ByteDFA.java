@@ -0,0 +1,170 @@
+package dfa;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A compiled automaton over UTF-8 bytes. The automaton recognizes the UTF-8 encodings of
+ * the strings that a character {@link DFA} recognizes (see {@link DFAOperations#utf8(DFA)}),
+ * so that UTF-8 input can be recognized without decoding it first.
+ * <p>
+ * Like {@link CompiledDFA}, the transitions are stored in one flat array with a column per
+ * byte class, there are at most 256 classes. A byte DFA does not change after construction.
+ * <p>
+ * A byte DFA for ISO-8859-1 input, where every byte is one character, is created with
+ * {@link #latin1(CompiledDFA)}.
+ */
+public final class ByteDFA {
+    /**
+     * The state number used for the (implicit) dead state.
+     */
+    public static final int DEAD = -1;
+
+    /**
+     * Compile the UTF-8 automaton for the given automaton.
+     *
+     * @param dfa The automaton over characters.
+     */
+    public ByteDFA(DFA dfa) {
+        this(DFAOperations.utf8(Preconditions.checkNotNull(dfa)).compile());
+    }
+
+    /**
+     * Get a byte automaton for ISO-8859-1 encoded input: every byte is read as the character
+     * with the same value, characters above <i>U+00FF</i> cannot occur.
+     *
+     * @param dfa The automaton over characters.
+     */
+    public static ByteDFA latin1(CompiledDFA dfa) {
+        Preconditions.checkNotNull(dfa);
+        return new ByteDFA(dfa);
+    }
+
+    /**
+     * Construct a byte automaton that steps a compiled automaton with the characters
+     * <i>0..255</i>.
+     */
+    private ByteDFA(CompiledDFA compiled) {
+        nStates = compiled.getNumberOfStates();
+
+        byteClasses = new byte[BYTE_VALUES];
+
+        // number the classes of the bytes densely, the classes of other characters are not used.
+        int[] denseClasses = new int[compiled.getNumberOfClasses()];
+        Arrays.fill(denseClasses, -1);
+        byte[] representatives = new byte[BYTE_VALUES];
+        int n = 0;
+        for (int b = 0; b < BYTE_VALUES; ++b) {
+            int cls = compiled.classOf((char) b);
+            if (denseClasses[cls] == -1) {
+                denseClasses[cls] = n;
+                representatives[n++] = (byte) b;
+            }
+            byteClasses[b] = (byte) denseClasses[cls];
+        }
+        nClasses = n;
+
+        transitions = new int[nStates * nClasses];
+        accept = new BitSet(nStates);
+        for (int state = 0; state < nStates; ++state) {
+            if (compiled.isAccept(state))
+                accept.set(state);
+
+            for (int cls = 0; cls < nClasses; ++cls)
+                transitions[state * nClasses + cls] = compiled.step(state, (char) (representatives[cls] & 0xFF));
+        }
+    }
+
+    /**
+     * Get the number of the start state.
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * Get the number of states in the automaton (excluding the implicit dead state).
+     */
+    public int getNumberOfStates() {
+        return nStates;
+    }
+
+    /**
+     * Get the number of byte classes. This is the width of a row in the transition table.
+     */
+    public int getNumberOfClasses() {
+        return nClasses;
+    }
+
+    public boolean isAccept(int state) {
+        return state != DEAD && accept.get(state);
+    }
+
+    /**
+     * Follow the transition for the given byte.
+     *
+     * @param state The state to start from, must not be {@link #DEAD}.
+     * @param b     Transition byte.
+     * @return The reached state, or {@link #DEAD} if there is no transition for the byte.
+     */
+    public int step(int state, byte b) {
+        return transitions[state * nClasses + (byteClasses[b & 0xFF] & 0xFF)];
+    }
+
+    /**
+     * RECOGNIZE if UTF-8 encoded bytes are valid according to this DFA.
+     *
+     * @return {@code true} if the bytes could be recognized, {@code false} otherwise.
+     */
+    public boolean recognize(byte[] bytes) {
+        Preconditions.checkNotNull(bytes);
+        return recognize(bytes, 0, bytes.length);
+    }
+
+    /**
+     * RECOGNIZE if the UTF-8 encoded bytes <i>bytes[off..off + len - 1]</i> are valid according
+     * to this DFA.
+     *
+     * @return {@code true} if the bytes could be recognized, {@code false} otherwise.
+     */
+    public boolean recognize(byte[] bytes, int off, int len) {
+        Preconditions.checkNotNull(bytes);
+        Preconditions.checkPositionIndexes(off, off + len, bytes.length);
+
+        int state = 0;
+        for (int i = off, end = off + len; i < end && state != DEAD; ++i)
+            state = step(state, bytes[i]);
+
+        return isAccept(state);
+    }
+
+    /**
+     * RECOGNIZE if the UTF-8 encoded bytes between the position and the limit of a buffer are
+     * valid according to this DFA. The position of the buffer is not changed.
+     *
+     * @return {@code true} if the bytes could be recognized, {@code false} otherwise.
+     */
+    public boolean recognize(ByteBuffer buf) {
+        Preconditions.checkNotNull(buf);
+
+        if (buf.hasArray())
+            return recognize(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+
+        int state = 0;
+        for (int i = buf.position(), end = buf.limit(); i < end && state != DEAD; ++i)
+            state = step(state, buf.get(i));
+
+        return isAccept(state);
+    }
+
+    private static final int BYTE_VALUES = 256;
+
+    private final int nStates;
+    private final int nClasses;
+    private final byte[] byteClasses;
+    private final int[] transitions;
+    private final BitSet accept;
+}
@@ -0,0 +1,257 @@
+package dfa;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import match.Matcher;
+import match.Recognizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * A compiled, table-driven form of a {@link DFA}. States are numbered densely (the start
+ * state is always 0), characters are mapped to character classes (see {@link Alphabet}),
+ * and the transitions are stored in one flat array that is indexed by
+ * <i>state * classes + class</i>. Accepting states are stored in a bitset, and the patterns
+ * of the states (see {@link DFAState#addPattern(int)}) in one array, the patterns of state
+ * <i>s</i> are <i>patterns[patternOffsets[s]..patternOffsets[s + 1] - 1]</i>.
+ * <p>
+ * States from which no accepting state can be reached are detected once, during
+ * compilation, and transitions to such states go to {@link #DEAD} instead. Recognition and
+ * streaming sessions therefore stop as soon as a string cannot be accepted anymore, even
+ * if the automaton is not minimal.
+ * <p>
+ * Once built, a compiled DFA does not change anymore, even if the {@link DFA} that it was
+ * compiled from is modified. Recognition does not allocate any objects.
+ */
+public final class CompiledDFA implements Recognizer {
+    /**
+     * The state number used for the (implicit) dead state.
+     */
+    public static final int DEAD = -1;
+
+    /**
+     * Compile the given automaton.
+     *
+     * @param dfa The automaton to compile.
+     */
+    public CompiledDFA(DFA dfa) {
+        Preconditions.checkNotNull(dfa);
+
+        Map<DFAState, Integer> stateNumbers = dfa.numberStates();
+        DFAState[] states = new DFAState[stateNumbers.size()];
+        for (Map.Entry<DFAState, Integer> numberedState : stateNumbers.entrySet())
+            states[numberedState.getValue()] = numberedState.getKey();
+
+        alphabet = dfa.getAlphabet();
+        nClasses = alphabet.getNumberOfClasses();
+
+        transitions = new int[states.length * nClasses];
+        Arrays.fill(transitions, DEAD);
+        accept = new BitSet(states.length);
+
+        int nPatterns = 0;
+        for (DFAState state : states)
+            nPatterns += state.getPatterns().size();
+        patternOffsets = new int[states.length + 1];
+        patterns = new int[nPatterns];
+
+        int patternIdx = 0;
+        for (int stateNumber = 0; stateNumber < states.length; ++stateNumber) {
+            DFAState s = states[stateNumber];
+
+            if (s.isAccept())
+                accept.set(stateNumber);
+
+            patternOffsets[stateNumber] = patternIdx;
+            for (int pattern : s.getPatterns())
+                patterns[patternIdx++] = pattern;
+
+            for (Map.Entry<CharRange, DFAState> trans : s.getTransitions().entrySet()) {
+                int to = stateNumbers.get(trans.getValue());
+                CharRange range = trans.getKey();
+                for (int cls : alphabet.classes(range))
+                    transitions[stateNumber * nClasses + cls] = to;
+            }
+        }
+
+        patternOffsets[states.length] = patternIdx;
+        nStates = states.length;
+
+        live = liveStates(transitions, accept, nStates, nClasses);
+        for (int i = 0; i < transitions.length; ++i)
+            if (transitions[i] != DEAD && !live.get(transitions[i]))
+                transitions[i] = DEAD;
+    }
+
+    /**
+     * Find the states from which an accepting state can be reached, with a breadth-first
+     * search from the accepting states over the reversed transitions.
+     */
+    private static BitSet liveStates(int[] transitions, BitSet accept, int nStates, int nClasses) {
+        // the sources of the transitions into every state, in compressed sparse row format.
+        int[] offsets = new int[nStates + 1];
+        for (int to : transitions)
+            if (to != DEAD)
+                ++offsets[to + 1];
+        for (int state = 0; state < nStates; ++state)
+            offsets[state + 1] += offsets[state];
+
+        int[] sources = new int[offsets[nStates]];
+        int[] fill = Arrays.copyOf(offsets, nStates);
+        for (int i = 0; i < transitions.length; ++i)
+            if (transitions[i] != DEAD)
+                sources[fill[transitions[i]]++] = i / nClasses;
+
+        BitSet live = (BitSet) accept.clone();
+        int[] queue = new int[nStates];
+        int head = 0;
+        int tail = 0;
+        for (int state = accept.nextSetBit(0); state != -1; state = accept.nextSetBit(state + 1))
+            queue[tail++] = state;
+
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = offsets[state]; i < offsets[state + 1]; ++i) {
+                if (!live.get(sources[i])) {
+                    live.set(sources[i]);
+                    queue[tail++] = sources[i];
+                }
+            }
+        }
+
+        return live;
+    }
+
+    /**
+     * Get the number of the start state.
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * Get the number of states in the automaton (excluding the implicit dead state).
+     */
+    public int getNumberOfStates() {
+        return nStates;
+    }
+
+    /**
+     * Get the number of character classes. This is the width of a row in the
+     * transition table.
+     */
+    public int getNumberOfClasses() {
+        return nClasses;
+    }
+
+    /**
+     * Get the character class of a character.
+     */
+    public int classOf(char c) {
+        return alphabet.classOf(c);
+    }
+
+    /**
+     * Get the partition of the characters into classes.
+     */
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    public boolean isAccept(int state) {
+        return state != DEAD && accept.get(state);
+    }
+
+    /**
+     * Check whether an accepting state can be reached from a state. Only the start state
+     * can be a state that is not live, since there are no transitions to such states.
+     */
+    public boolean isLive(int state) {
+        return state != DEAD && live.get(state);
+    }
+
+    /**
+     * Get the patterns of a state, see {@link DFAState#addPattern(int)}.
+     *
+     * @return The patterns in ascending order, no patterns for {@link #DEAD}.
+     */
+    public int[] getPatterns(int state) {
+        if (state == DEAD)
+            return new int[0];
+
+        return Arrays.copyOfRange(patterns, patternOffsets[state], patternOffsets[state + 1]);
+    }
+
+    /**
+     * Follow the transition for the given character.
+     *
+     * @param state The state to start from, must not be {@link #DEAD}.
+     * @param c     Transition character.
+     * @return The reached state, or {@link #DEAD} if there is no transition for the character,
+     * or no accepting state can be reached from the state.
+     */
+    public int step(int state, char c) {
+        return transitions[state * nClasses + classOf(c)];
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to this DFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return isAccept(run(string));
+    }
+
+    /**
+     * Get the patterns that match a string, in an automaton for several patterns.
+     *
+     * @param string The string to be recognized.
+     * @return The patterns of the state that is reached, in ascending order.
+     */
+    public int[] matchingPatterns(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return getPatterns(run(string));
+    }
+
+    private int run(CharSequence string) {
+        int state = 0;
+        for (int i = 0; i < string.length() && state != DEAD; ++i)
+            state = step(state, string.charAt(i));
+
+        return state;
+    }
+
+    /**
+     * Write the automaton in a compact binary format, that can be memory-mapped by
+     * {@link MappedDFA#load(java.nio.file.Path)}. The format has a version number and a checksum.
+     *
+     * @param out The stream, which is flushed but not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Preconditions.checkNotNull(out);
+        DFAFormat.write(this, out);
+    }
+
+    /**
+     * Start a streaming recognition session.
+     */
+    public Matcher matcher() {
+        return new DFAMatcher(this);
+    }
+
+    private final Alphabet alphabet;
+    private final int nClasses;
+    private final int nStates;
+    private final int[] transitions;
+    private final BitSet accept;
+    private final BitSet live;
+    private final int[] patternOffsets;
+    private final int[] patterns;
+}
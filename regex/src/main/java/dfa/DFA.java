@@ -1,9 +1,16 @@
 package dfa;
 
+import alphabet.Alphabet;
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+import match.Matcher;
 import nfa.NFA;
 import nfa.NFAState;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -25,6 +32,9 @@ public class DFA {
 
         for (DFAState state : states) {
             DFAState cloneState = new DFAState(state.isAccept());
+            if (state.isAccept())
+                for (int pattern : state.getPatterns())
+                    cloneState.addPattern(pattern);
             cloneMapping.put(state, cloneState);
         }
 
@@ -32,7 +42,7 @@ public class DFA {
             DFAState state = stateCloneState.getKey();
             DFAState cloneState = stateCloneState.getValue();
 
-            for (Map.Entry<Character, DFAState> transition : state.getTransitions().entrySet()) {
+            for (Map.Entry<CharRange, DFAState> transition : state.getTransitions().entrySet()) {
                 cloneState.addTransition(transition.getKey(), cloneMapping.get(transition.getValue()));
             }
         }
@@ -56,6 +66,45 @@ public class DFA {
         return acceptStates;
     }
 
+    /**
+     * Compute the character classes of the automaton: two characters are in the same class
+     * when every state has the same transition for both characters. Characters can therefore
+     * share a class even if the automaton labels them with different ranges.
+     *
+     * @return The partition of the characters into classes.
+     */
+    public Alphabet getAlphabet() {
+        Map<DFAState, Integer> stateNumbers = numberStates();
+
+        List<CharRange> ranges = new ArrayList<>();
+        for (DFAState state : stateNumbers.keySet())
+            ranges.addAll(state.getTransitions().keySet());
+        Alphabet alphabet = Alphabet.of(ranges);
+
+        // The column of the transition table of each class, classes with equal columns are merged.
+        int[][] columns = new int[alphabet.getNumberOfClasses()][stateNumbers.size()];
+        for (int[] column : columns)
+            Arrays.fill(column, -1);
+        for (Map.Entry<DFAState, Integer> numberedState : stateNumbers.entrySet())
+            for (Map.Entry<CharRange, DFAState> trans : numberedState.getKey().getTransitions().entrySet())
+                for (int cls : alphabet.classes(trans.getKey()))
+                    columns[cls][numberedState.getValue()] = stateNumbers.get(trans.getValue());
+
+        Map<List<Integer>, Integer> mergedClasses = new HashMap<>();
+        int[] classMapping = new int[columns.length];
+        for (int cls = 0; cls < columns.length; ++cls) {
+            List<Integer> column = Ints.asList(columns[cls]);
+            Integer merged = mergedClasses.get(column);
+            if (merged == null) {
+                merged = mergedClasses.size();
+                mergedClasses.put(column, merged);
+            }
+            classMapping[cls] = merged;
+        }
+
+        return alphabet.coarsen(classMapping);
+    }
+
     /**
      * Get the states in the automaton (all states that are accessible through the start state).
      *
@@ -81,10 +130,10 @@ public class DFA {
     }
 
     /**
-     * Number states. Used by {@link #toDot()} to obtain state numbers. The traversal is
-     * breadth-first, so that deeper states tend to get higher numbers.
+     * Number states. Used by {@link #toDot()} and {@link CompiledDFA} to obtain state numbers.
+     * The traversal is breadth-first, so that deeper states tend to get higher numbers.
      */
-    private Map<DFAState, Integer> numberStates() {
+    Map<DFAState, Integer> numberStates() {
         Map<DFAState, Integer> numbers = new HashMap<DFAState, Integer>();
 
         int i = 0;
@@ -129,8 +178,8 @@ public class DFA {
             if (s.isAccept())
                 stringBuilder.append(String.format("%d [peripheries=2];\n", stateNumber));
 
-            for (Map.Entry<Character, DFAState> trans : s.getTransitions().entrySet())
-                stringBuilder.append(String.format("%d -> %d [label=\"%c\"];\n", stateNumber,
+            for (Map.Entry<CharRange, DFAState> trans : s.getTransitions().entrySet())
+                stringBuilder.append(String.format("%d -> %d [label=\"%s\"];\n", stateNumber,
                         stateNumbers.get(trans.getValue()), trans.getKey()));
         }
 
@@ -140,53 +189,85 @@ public class DFA {
 
 
     /**
-     * RECOGNIZE if a string is valid according to this NFA.
-     * uses BFS approach
-     * @param string The string to be recognize.
-     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     * Compile the automaton to a table-driven {@link CompiledDFA}. Later changes to this
+     * automaton are not reflected in the compiled automaton.
+     *
+     * @return The compiled automaton.
      */
-    public boolean recognize(String string) {
-        Preconditions.checkNotNull(string);
-
-        int index = 0; // for tracking our position in the string
-        Queue<DFA.StatePair> memory = new LinkedList<>(); // store states still to visit
-        memory.add(new DFA.StatePair(index, this.startState)); // add the first state to the visit list
+    public CompiledDFA compile() {
+        return new CompiledDFA(this);
+    }
 
-        while (!memory.isEmpty()) {
-            DFA.StatePair sp = memory.poll();
-            DFAState curState = sp.getState();
-            index = sp.getIndex();
-            if (index == string.length() && curState.isAccept()) return true;
+    /**
+     * Compile the automaton to a {@link ByteDFA} that recognizes UTF-8 encoded input.
+     *
+     * @return The compiled automaton.
+     */
+    public ByteDFA compileUtf8() {
+        return new ByteDFA(this);
+    }
 
-            if (index < string.length()) {
-                DFAState transition = curState.to(string.charAt(index));
+    /**
+     * Write the automaton in a compact binary format, that can be loaded with
+     * {@link #load(Path)}. The automaton is compiled first, see {@link #compile()}; it
+     * is not minimized.
+     *
+     * @param out The stream, which is flushed but not closed.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        compile().writeTo(out);
+    }
 
-                if (transition != null) memory.add(new DFA.StatePair(index + 1, transition));
+    /**
+     * Load an automaton that was written by {@link #writeTo(OutputStream)}. The file is
+     * memory-mapped, no states are constructed. Only the header is checked, see
+     * {@link MappedDFA#load(Path, boolean)} to verify the whole file.
+     *
+     * @param path The file.
+     * @return The automaton.
+     * @throws IOException If the file cannot be read, or does not have a valid header.
+     */
+    public static MappedDFA load(Path path) throws IOException {
+        return MappedDFA.load(path);
+    }
 
-            }
-        }
-        return false;
+    /**
+     * Load an automaton that was written by {@link #writeTo(OutputStream)}, see
+     * {@link MappedDFA#load(Path, boolean)}.
+     *
+     * @param path   The file.
+     * @param verify Check the checksum and the tables, which reads the whole file.
+     * @return The automaton.
+     * @throws IOException If the file cannot be read, or is not a valid automaton.
+     */
+    public static MappedDFA load(Path path, boolean verify) throws IOException {
+        return MappedDFA.load(path, verify);
     }
 
     /**
-     * State-string index pair. Used for keeping track of search states when recognizing a
-     * string using the automaton.
+     * Start a streaming recognition session. The session is dead as soon as no accepting
+     * state can be reached anymore. The automaton is compiled for every session, since it
+     * can still be modified; to start many sessions, compile it once and use
+     * {@link CompiledDFA#matcher()}.
      */
-    private class StatePair {
-        private final int index;
-        private final DFAState state;
+    public Matcher matcher() {
+        return compile().matcher();
+    }
 
-        public StatePair(int index, DFAState state) {
-            this.index = index;
-            this.state = state;
-        }
+    /**
+     * RECOGNIZE if a string is valid according to this DFA.
+     * since the automaton is deterministic, there is only one path to follow
+     * @param string The string to be recognize.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    public boolean recognize(String string) {
+        Preconditions.checkNotNull(string);
 
-        public int getIndex() {
-            return index;
-        }
+        DFAState curState = this.startState;
+        for (int index = 0; index < string.length() && curState != null; ++index)
+            curState = curState.to(string.charAt(index));
 
-        public DFAState getState() {return state;
-        }
+        return curState != null && curState.isAccept();
     }
 
 
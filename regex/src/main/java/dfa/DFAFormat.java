@@ -0,0 +1,174 @@
+package dfa;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The binary format of compiled automata. All values are big-endian, the sections are
+ * ordered such that every value is aligned to its size:
+ * <pre>
+ *     header           magic, version, states, classes, intervals, patterns (6 ints)
+ *     accept           ceil(states / 64) longs, bit s is set if state s is accepting
+ *     transitions      states * classes ints, row-major, -1 is the dead state
+ *     pattern offsets  states + 1 ints
+ *     patterns         patterns ints
+ *     latin-1 classes  256 chars, the classes of the characters 0-255
+ *     interval starts  intervals chars, the first characters of the alphabet intervals
+ *     interval classes intervals chars
+ *     checksum         CRC-32 of all preceding bytes (int)
+ * </pre>
+ */
+final class DFAFormat {
+    static final int MAGIC = 0x44464121; // "DFA!"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 6 * 4;
+    static final int LATIN1_SIZE = 256;
+
+    private DFAFormat() {
+    }
+
+    /**
+     * Write an automaton. The stream is flushed, but not closed.
+     */
+    static void write(CompiledDFA dfa, OutputStream out) throws IOException {
+        int nStates = dfa.getNumberOfStates();
+        int nClasses = dfa.getNumberOfClasses();
+        Alphabet alphabet = dfa.getAlphabet();
+
+        SortedMap<CharRange, Integer> intervals = intervals(alphabet);
+
+        int nPatterns = 0;
+        for (int state = 0; state < nStates; ++state)
+            nPatterns += dfa.getPatterns(state).length;
+
+        CRC32 crc = new CRC32();
+        DataOutputStream data = new DataOutputStream(new CheckedOutputStream(out, crc));
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(nStates);
+        data.writeInt(nClasses);
+        data.writeInt(intervals.size());
+        data.writeInt(nPatterns);
+
+        for (int word = 0; word < acceptWords(nStates); ++word) {
+            long bits = 0;
+            for (int bit = 0; bit < 64 && word * 64 + bit < nStates; ++bit)
+                if (dfa.isAccept(word * 64 + bit))
+                    bits |= 1L << bit;
+            data.writeLong(bits);
+        }
+
+        for (int state = 0; state < nStates; ++state)
+            for (int cls = 0; cls < nClasses; ++cls)
+                data.writeInt(dfa.step(state, alphabet.representative(cls)));
+
+        int patternOffset = 0;
+        for (int state = 0; state < nStates; ++state) {
+            data.writeInt(patternOffset);
+            patternOffset += dfa.getPatterns(state).length;
+        }
+        data.writeInt(patternOffset);
+        for (int state = 0; state < nStates; ++state)
+            for (int pattern : dfa.getPatterns(state))
+                data.writeInt(pattern);
+
+        for (char c = 0; c < LATIN1_SIZE; ++c)
+            data.writeChar(alphabet.classOf(c));
+        for (CharRange range : intervals.keySet())
+            data.writeChar(range.getLo());
+        for (int cls : intervals.values())
+            data.writeChar(cls);
+
+        data.flush();
+        new DataOutputStream(out).writeInt((int) crc.getValue());
+        out.flush();
+    }
+
+    /**
+     * Get the intervals of the classes of an alphabet, ordered by their first character.
+     */
+    static SortedMap<CharRange, Integer> intervals(Alphabet alphabet) {
+        SortedMap<CharRange, Integer> intervals = new TreeMap<>();
+        for (int cls = 0; cls < alphabet.getNumberOfClasses(); ++cls)
+            for (CharRange range : alphabet.ranges(cls))
+                intervals.put(range, cls);
+
+        return intervals;
+    }
+
+    static int acceptWords(int nStates) {
+        return (nStates + 63) / 64;
+    }
+
+    /**
+     * Get the size in bytes of an automaton, without the checksum.
+     */
+    static long size(int nStates, int nClasses, int nIntervals, int nPatterns) {
+        return HEADER_SIZE + 8L * acceptWords(nStates) + 4L * nStates * nClasses + 4L * (nStates + 1) +
+                4L * nPatterns + 2L * LATIN1_SIZE + 4L * nIntervals;
+    }
+
+    /**
+     * Compute the checksum of <i>buf[0..length - 1]</i>, without changing the position of the buffer.
+     */
+    static int checksum(ByteBuffer buf, int length) {
+        // through Buffer, ByteBuffer.position(int) and limit(int) only exist since Java 9.
+        ByteBuffer data = buf.duplicate();
+        ((Buffer) data).position(0);
+        ((Buffer) data).limit(length);
+
+        CRC32 crc = new CRC32();
+        byte[] block = new byte[8192];
+        while (data.hasRemaining()) {
+            int n = Math.min(block.length, data.remaining());
+            data.get(block, 0, n);
+            crc.update(block, 0, n);
+        }
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Check that the transitions go to existing states or the dead state.
+     */
+    static void checkTransitions(IntBuffer transitions, int nStates) throws IOException {
+        for (int i = 0; i < transitions.limit(); ++i) {
+            int to = transitions.get(i);
+            if (to < CompiledDFA.DEAD || to >= nStates)
+                throw new IOException("Automaton file is invalid, transition to a non-existent state: " + to);
+        }
+    }
+
+    /**
+     * Check that the character classes are valid. The intervals should start at character 0
+     * and be in ascending order.
+     */
+    static void checkClasses(CharBuffer latin1, CharBuffer intervalStarts, CharBuffer intervalClasses,
+                             int nClasses) throws IOException {
+        for (int i = 0; i < latin1.limit(); ++i)
+            if (latin1.get(i) >= nClasses)
+                throw new IOException("Automaton file is invalid, non-existent class: " + (int) latin1.get(i));
+        for (int i = 0; i < intervalClasses.limit(); ++i)
+            if (intervalClasses.get(i) >= nClasses)
+                throw new IOException("Automaton file is invalid, non-existent class: " + (int) intervalClasses.get(i));
+
+        if (intervalStarts.get(0) != 0)
+            throw new IOException("Automaton file is invalid, the first interval does not start at 0");
+        for (int i = 1; i < intervalStarts.limit(); ++i)
+            if (intervalStarts.get(i) <= intervalStarts.get(i - 1))
+                throw new IOException("Automaton file is invalid, the intervals are not in ascending order");
+    }
+}
@@ -0,0 +1,35 @@
+package dfa;
+
+import match.AbstractMatcher;
+
+/**
+ * Matcher that runs a {@link CompiledDFA}. The only state between chunks is the number
+ * of the current DFA state.
+ */
+final class DFAMatcher extends AbstractMatcher {
+    DFAMatcher(CompiledDFA dfa) {
+        this.dfa = dfa;
+        state = dfa.isLive(dfa.getStartState()) ? dfa.getStartState() : CompiledDFA.DEAD;
+    }
+
+    @Override
+    protected void consume(char[] buf, int off, int len) {
+        int s = state;
+        for (int i = off, end = off + len; i < end && s != CompiledDFA.DEAD; ++i)
+            s = dfa.step(s, buf[i]);
+        state = s;
+    }
+
+    @Override
+    public boolean isAcceptingNow() {
+        return dfa.isAccept(state);
+    }
+
+    @Override
+    public boolean isDead() {
+        return state == CompiledDFA.DEAD;
+    }
+
+    private final CompiledDFA dfa;
+    private int state;
+}
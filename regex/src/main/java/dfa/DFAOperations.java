@@ -1,8 +1,11 @@
 package dfa;
 
 
+import alphabet.Alphabet;
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
 import nfa.NFA;
+import nfa.NFAOperations;
 import nfa.NFAState;
 
 import java.util.*;
@@ -14,61 +17,343 @@ public class DFAOperations {
 
     /**
      * REVERSAL ALGO
-     * - original start state becomes rev accept state
-     * - original accept states merged into a rev start state (which has accept status  if original start state was accept)
+     * - every transition is reversed, the original start state becomes the rev accept state
+     * - a new rev start state gets the reversed transitions of all original accept states
+     *   (and is accepting if the original start state was accept)
+     * - the new rev start state has no incoming transitions
      */
     public static NFA reversalDFA(DFA dfa){
         Preconditions.checkNotNull(dfa);
-        DFA cloneDFA = dfa.clone();
 
-        Queue<DFAState> oMemory = new LinkedList<>();
-        Queue<NFAState> rMemory = new LinkedList<>();
-        DFAState oCurState = cloneDFA.getStartState();
-        NFAState revStartState = new NFAState(oCurState.isAccept());
-        NFAState revAccState = new NFAState(true);
+        Set<DFAState> states = dfa.getStates();
+        Map<DFAState,NFAState> originalToReverseMap = new HashMap<>();
+        for (DFAState state : states)
+            originalToReverseMap.put(state, new NFAState(state == dfa.getStartState()));
 
-        oMemory.add(oCurState);
-        rMemory.add(revAccState);
+        NFAState revStartState = new NFAState(dfa.getStartState().isAccept());
+        for (DFAState oCurState : states) {
+            NFAState rCurState = originalToReverseMap.get(oCurState);
 
-        Map<DFAState,NFAState> originalToReverseMap = new HashMap<>();
-        originalToReverseMap.put(oCurState,revAccState);
+            for (Map.Entry<CharRange, DFAState> transition : oCurState.getTransitions().entrySet()){
+                CharRange x = transition.getKey();
+                DFAState oTransState = transition.getValue();
 
-        while (!oMemory.isEmpty()){
+                originalToReverseMap.get(oTransState).addTransition(x, rCurState);
+                if (oTransState.isAccept())
+                    revStartState.addTransition(x, rCurState);
+            }
+        }
 
-            oCurState = oMemory.poll();
-            NFAState rCurState = rMemory.poll();
+        return new NFA(revStartState);
+    }
 
-            for (Character x : oCurState.getTransitions().keySet()){
 
-                DFAState oTransState = oCurState.to(x);
+    /**
+     * UTF-8
+     * returns an automaton over bytes that recognizes the UTF-8 encodings of the strings that
+     * the input dfa recognizes. transition labels are byte ranges in [0, 255]. characters are
+     * expanded into byte sequences, and a high surrogate followed by a low surrogate becomes
+     * the 4-byte sequence of the supplementary code point. lone surrogates have no UTF-8
+     * encoding, so they are dropped. the patterns of accepting states are kept.
+     * @param dfa
+     * @return a DFA over bytes, minimized
+     */
+    public static DFA utf8(DFA dfa) {
+        Preconditions.checkNotNull(dfa);
 
-                boolean alreadyVisited = originalToReverseMap.containsKey(oTransState);
+        Set<DFAState> states = dfa.getStates();
+        Map<DFAState, NFAState> byteStates = new HashMap<>();
+        for (DFAState state : states) {
+            NFAState byteState = new NFAState(state.isAccept());
+            for (int pattern : state.getPatterns())
+                byteState.addPattern(pattern);
+            byteStates.put(state, byteState);
+        }
 
-                 if (oTransState.isAccept() && alreadyVisited) { //SPECIAL CASE
-                    revStartState.addTransition(x,rCurState);
+        for (DFAState state : states) {
+            NFAState from = byteStates.get(state);
 
-                } else if (oTransState.isAccept() && !alreadyVisited) {
+            for (Map.Entry<CharRange, DFAState> transition : state.getTransitions().entrySet()) {
+                int lo = transition.getKey().getLo();
+                int hi = transition.getKey().getHi();
+                DFAState to = transition.getValue();
 
-                    revStartState.addTransition(x,rCurState);
+                // the characters around the surrogates are code points.
+                addUtf8Sequences(from, lo, Math.min(hi, Character.MIN_SURROGATE - 1), byteStates.get(to));
+                addUtf8Sequences(from, Math.max(lo, Character.MAX_SURROGATE + 1), hi, byteStates.get(to));
 
-                    oMemory.add(oTransState);
-                    rMemory.add(revStartState);
-                    originalToReverseMap.put(oTransState,revStartState);
+                int highLo = Math.max(lo, Character.MIN_HIGH_SURROGATE);
+                int highHi = Math.min(hi, Character.MAX_HIGH_SURROGATE);
+                if (highLo > highHi)
+                    continue;
 
-                } else if (!alreadyVisited) {
+                // a high surrogate followed by a low surrogate.
+                for (Map.Entry<CharRange, DFAState> lowTransition : to.getTransitions().entrySet()) {
+                    char lowLo = (char) Math.max(lowTransition.getKey().getLo(), Character.MIN_LOW_SURROGATE);
+                    char lowHi = (char) Math.min(lowTransition.getKey().getHi(), Character.MAX_LOW_SURROGATE);
+                    if (lowLo > lowHi)
+                        continue;
 
-                    NFAState newRevState = new NFAState(false);
-                    newRevState.addTransition(x,rCurState);
+                    NFAState pairTo = byteStates.get(lowTransition.getValue());
+                    if (lowLo == Character.MIN_LOW_SURROGATE && lowHi == Character.MAX_LOW_SURROGATE)
+                        addUtf8Sequences(from, Character.toCodePoint((char) highLo, lowLo),
+                                Character.toCodePoint((char) highHi, lowHi), pairTo);
+                    else {
+                        // the code points are only contiguous for one high surrogate.
+                        for (int high = highLo; high <= highHi; ++high)
+                            addUtf8Sequences(from, Character.toCodePoint((char) high, lowLo),
+                                    Character.toCodePoint((char) high, lowHi), pairTo);
+                    }
+                }
+            }
+        }
+
+        return minimize(NFAOperations.determinize(new NFA(byteStates.get(dfa.getStartState()))));
+    }
+
+    /**
+     * Add paths from <i>from</i> to <i>to</i> for the UTF-8 encodings of the code points
+     * <i>[lo, hi]</i>.
+     */
+    private static void addUtf8Sequences(NFAState from, int lo, int hi, NFAState to) {
+        if (lo > hi)
+            return;
 
-                    oMemory.add(oTransState);
-                    rMemory.add(newRevState);
-                    originalToReverseMap.put(oTransState,newRevState);
+        for (CharRange[] sequence : Utf8Sequences.of(lo, hi)) {
+            NFAState state = from;
+            for (int i = 0; i < sequence.length - 1; ++i) {
+                NFAState next = new NFAState(false);
+                state.addTransition(sequence[i], next);
+                state = next;
+            }
+            state.addTransition(sequence[sequence.length - 1], to);
+        }
+    }
 
-                } else if (alreadyVisited){
-                    originalToReverseMap.get(oTransState).addTransition(x,rCurState);
+
+    /**
+     * MINIMIZE
+     * uses Hopcroft's partition refinement algorithm, which takes O(n log n) time for
+     * n states. The automaton is made complete with an extra sink state, which also
+     * absorbs states that cannot reach an accepting state. The sink is not part of the
+     * minimized automaton.
+     * @param dfa
+     * @return a DFA, minimized
+     */
+    public static DFA minimize(DFA dfa) {
+        Preconditions.checkNotNull(dfa);
+
+        Map<DFAState, Integer> stateNumbers = dfa.numberStates();
+        int nStates = stateNumbers.size();
+        DFAState[] states = new DFAState[nStates];
+        for (Map.Entry<DFAState, Integer> numberedState : stateNumbers.entrySet())
+            states[numberedState.getValue()] = numberedState.getKey();
+
+        // the symbols are the character classes of the transition ranges.
+        Alphabet alphabet = dfa.getAlphabet();
+        int nSymbols = alphabet.getNumberOfClasses();
+
+        // complete transition table, state nStates is the sink.
+        int sink = nStates;
+        int n = nStates + 1;
+        int[] delta = new int[n * nSymbols];
+        Arrays.fill(delta, sink);
+        for (int state = 0; state < nStates; ++state) {
+            for (Map.Entry<CharRange, DFAState> trans : states[state].getTransitions().entrySet()) {
+                CharRange range = trans.getKey();
+                for (int a : alphabet.classes(range))
+                    delta[state * nSymbols + a] = stateNumbers.get(trans.getValue());
+            }
+        }
+
+        // inverse transitions, the predecessors of t for symbol a are in
+        // preds[predOffsets[a * n + t]..predOffsets[a * n + t + 1]).
+        int[] predOffsets = new int[n * nSymbols + 1];
+        for (int state = 0; state < n; ++state)
+            for (int a = 0; a < nSymbols; ++a)
+                ++predOffsets[a * n + delta[state * nSymbols + a] + 1];
+        for (int i = 1; i < predOffsets.length; ++i)
+            predOffsets[i] += predOffsets[i - 1];
+        int[] preds = new int[n * nSymbols];
+        int[] fill = Arrays.copyOf(predOffsets, predOffsets.length - 1);
+        for (int state = 0; state < n; ++state)
+            for (int a = 0; a < nSymbols; ++a)
+                preds[fill[a * n + delta[state * nSymbols + a]]++] = state;
+
+        int[] blocks = refine(initialPartition(states), n, nSymbols, predOffsets, preds);
+        return quotient(states, blocks, delta, alphabet);
+    }
+
+    /**
+     * Initial partition for minimization: non-accepting states, and accepting states split by
+     * their patterns, so that minimization keeps the patterns. The sink (which is not in
+     * <i>states</i>) is non-accepting.
+     */
+    private static int[] initialPartition(DFAState[] states) {
+        Map<Set<Integer>, Integer> acceptBlocks = new HashMap<>();
+        int[] blocks = new int[states.length + 1];
+        for (int state = 0; state < states.length; ++state) {
+            if (!states[state].isAccept())
+                continue;
+
+            Integer block = acceptBlocks.get(states[state].getPatterns());
+            if (block == null) {
+                block = acceptBlocks.size() + 1;
+                acceptBlocks.put(states[state].getPatterns(), block);
+            }
+            blocks[state] = block;
+        }
+        return blocks;
+    }
+
+    /**
+     * Refine a partition of the states until all states in a block are equivalent
+     * (Hopcroft's algorithm).
+     *
+     * @param initial The initial block of each state, block numbers should be dense.
+     * @return The block of each state in the coarsest stable partition.
+     */
+    private static int[] refine(int[] initial, int n, int nSymbols, int[] predOffsets, int[] preds) {
+        // the states of block b are elems[first[b]..end[b]), loc is the position of a state in elems.
+        // the marked states of block b are elems[first[b]..first[b] + marked[b]).
+        int[] blockOf = new int[n];
+        int[] elems = new int[n];
+        int[] loc = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+
+        int nBlocks = 0;
+        for (int b : initial)
+            nBlocks = Math.max(nBlocks, b + 1);
+
+        int[] sizes = new int[nBlocks];
+        for (int state = 0; state < n; ++state)
+            ++sizes[initial[state]];
+        for (int b = 0, pos = 0; b < nBlocks; ++b) {
+            first[b] = pos;
+            end[b] = pos;
+            pos += sizes[b];
+        }
+        for (int state = 0; state < n; ++state) {
+            int b = initial[state];
+            blockOf[state] = b;
+            loc[state] = end[b];
+            elems[end[b]++] = state;
+        }
+
+        // the worklist of splitters (block, symbol).
+        boolean[] inWorklist = new boolean[n * nSymbols];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int b = 0; b < nBlocks; ++b) {
+            for (int a = 0; a < nSymbols; ++a) {
+                inWorklist[b * nSymbols + a] = true;
+                worklist.add(b * nSymbols + a);
+            }
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (!worklist.isEmpty()) {
+            int item = worklist.poll();
+            int splitBlock = item / nSymbols;
+            int a = item % nSymbols;
+            inWorklist[item] = false;
+
+            // copy the splitter, marking moves states around in elems.
+            int splitterSize = end[splitBlock] - first[splitBlock];
+            System.arraycopy(elems, first[splitBlock], splitter, 0, splitterSize);
+
+            // mark all states that have an a-transition into the splitter.
+            int nTouched = 0;
+            for (int i = 0; i < splitterSize; ++i) {
+                int t = splitter[i];
+                for (int j = predOffsets[a * n + t]; j < predOffsets[a * n + t + 1]; ++j) {
+                    int p = preds[j];
+                    int b = blockOf[p];
+                    int markPos = first[b] + marked[b];
+                    if (loc[p] < markPos)
+                        continue; // already marked
+
+                    if (marked[b] == 0)
+                        touched[nTouched++] = b;
+
+                    int other = elems[markPos];
+                    elems[loc[p]] = other;
+                    loc[other] = loc[p];
+                    elems[markPos] = p;
+                    loc[p] = markPos;
+                    ++marked[b];
                 }
             }
-        } // end while
-        return new NFA(revStartState);
+
+            // split the blocks that are partially marked.
+            for (int i = 0; i < nTouched; ++i) {
+                int b = touched[i];
+                int nMarked = marked[b];
+                marked[b] = 0;
+                if (nMarked == end[b] - first[b])
+                    continue;
+
+                int newBlock = nBlocks++;
+                first[newBlock] = first[b];
+                end[newBlock] = first[b] + nMarked;
+                first[b] = end[newBlock];
+                for (int pos = first[newBlock]; pos < end[newBlock]; ++pos)
+                    blockOf[elems[pos]] = newBlock;
+
+                boolean newSmaller = nMarked <= end[b] - first[b];
+                for (int c = 0; c < nSymbols; ++c) {
+                    int add = inWorklist[b * nSymbols + c] || newSmaller ? newBlock : b;
+                    if (!inWorklist[add * nSymbols + c]) {
+                        inWorklist[add * nSymbols + c] = true;
+                        worklist.add(add * nSymbols + c);
+                    }
+                }
+            }
+        }
+
+        return blockOf;
+    }
+
+    /**
+     * Construct the quotient automaton of a partition. The block of the sink is left out.
+     */
+    private static DFA quotient(DFAState[] states, int[] blocks, int[] delta, Alphabet alphabet) {
+        int sinkBlock = blocks[states.length];
+        int nSymbols = alphabet.getNumberOfClasses();
+
+        Map<Integer, DFAState> blockStates = new HashMap<>();
+        for (int state = 0; state < states.length; ++state) {
+            if (blocks[state] != sinkBlock && !blockStates.containsKey(blocks[state])) {
+                DFAState blockState = new DFAState(states[state].isAccept());
+                for (int pattern : states[state].getPatterns())
+                    blockState.addPattern(pattern);
+                blockStates.put(blocks[state], blockState);
+            }
+        }
+
+        if (blocks[0] == sinkBlock) // the empty language
+            return new DFA(new DFAState(false));
+
+        Set<Integer> done = new HashSet<>();
+        for (int state = 0; state < states.length; ++state) {
+            int b = blocks[state];
+            if (b == sinkBlock || !done.add(b))
+                continue;
+
+            // a class can consist of several ranges.
+            SortedMap<CharRange, DFAState> rangeTransitions = new TreeMap<>();
+            for (int a = 0; a < nSymbols; ++a) {
+                int toBlock = blocks[delta[state * nSymbols + a]];
+                if (toBlock != sinkBlock)
+                    for (CharRange range : alphabet.ranges(a))
+                        rangeTransitions.put(range, blockStates.get(toBlock));
+            }
+
+            blockStates.get(b).addTransitions(rangeTransitions);
+        }
+
+        return new DFA(blockStates.get(blocks[0]));
     }
 }
@@ -1,18 +1,19 @@
 package dfa;
 
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
 
 import java.util.*;
 
 /**
- * State in a deterministic finite-state automaton.
+ * State in a deterministic finite-state automaton. Transitions are labelled with
+ * character ranges, the ranges of the transitions of a state do not overlap.
  */
 public class DFAState {
     public DFAState(boolean accept) {
         this.accept = accept;
-        transitions = new HashMap<>();
+        transitions = new TreeMap<>();
     }
 
     /**
@@ -22,23 +23,105 @@ public class DFAState {
      * @param to The state the transition leads to.
      */
     public void addTransition(char ch, DFAState to) {
+        addTransition(CharRange.of(ch), to);
+    }
+
+    /**
+     * Add an outgoing transition for a range of characters to this state. A transition with
+     * the same range is replaced, the range should not overlap with other transitions.
+     *
+     * @param range The characters on the transition.
+     * @param to    The state the transition leads to.
+     */
+    public void addTransition(CharRange range, DFAState to) {
+        Preconditions.checkNotNull(range);
         Preconditions.checkNotNull(to);
-        transitions.put(ch, to);
+
+        if (!transitions.containsKey(range)) {
+            Map.Entry<CharRange, DFAState> floor = transitions.floorEntry(range);
+            Map.Entry<CharRange, DFAState> ceiling = transitions.ceilingEntry(range);
+            Preconditions.checkArgument(floor == null || floor.getKey().getHi() < range.getLo(),
+                    "Transition %s overlaps with %s", range, floor == null ? null : floor.getKey());
+            Preconditions.checkArgument(ceiling == null || ceiling.getKey().getLo() > range.getHi(),
+                    "Transition %s overlaps with %s", range, ceiling == null ? null : ceiling.getKey());
+        }
+
+        transitions.put(range, to);
+        targets = null;
+    }
+
+    /**
+     * Add outgoing transitions to this state. Adjacent ranges that lead to the same state
+     * are merged into one transition.
+     *
+     * @param rangeTransitions The transitions, the ranges should not overlap.
+     */
+    public void addTransitions(SortedMap<CharRange, DFAState> rangeTransitions) {
+        Preconditions.checkNotNull(rangeTransitions);
+
+        CharRange merged = null;
+        DFAState mergedTo = null;
+        for (Map.Entry<CharRange, DFAState> transition : rangeTransitions.entrySet()) {
+            CharRange range = transition.getKey();
+            if (merged != null && mergedTo == transition.getValue() && merged.getHi() + 1 == range.getLo()) {
+                merged = CharRange.of(merged.getLo(), range.getHi());
+                continue;
+            }
+
+            if (merged != null)
+                addTransition(merged, mergedTo);
+            merged = range;
+            mergedTo = transition.getValue();
+        }
+
+        if (merged != null)
+            addTransition(merged, mergedTo);
     }
 
     /**
-     * Get all transitions that leave this state.
+     * Get all transitions that leave this state, ordered by their ranges.
      */
-    Map<Character, DFAState> getTransitions() {
+    NavigableMap<CharRange, DFAState> getTransitions() {
         return transitions;
     }
 
+    /**
+     * Add a pattern to this state, which makes the state accepting. In an automaton for
+     * several patterns, these are the patterns that match when the input ends in this state.
+     *
+     * @param pattern The pattern number.
+     */
+    public void addPattern(int pattern) {
+        Preconditions.checkArgument(pattern >= 0, "Invalid pattern: %s", pattern);
+
+        if (patterns == null)
+            patterns = new TreeSet<>();
+        patterns.add(pattern);
+        accept = true;
+    }
+
+    /**
+     * Get the patterns of this state, see {@link #addPattern(int)}.
+     */
+    public SortedSet<Integer> getPatterns() {
+        if (patterns == null)
+            return ImmutableSortedSet.of();
+
+        return Collections.unmodifiableSortedSet(patterns);
+    }
+
     public boolean isAccept() {
         return accept;
     }
 
+    /**
+     * Make this state accepting or non-accepting. A state that is made non-accepting loses
+     * its patterns, see {@link #addPattern(int)}.
+     */
     public void setAccept(boolean accept) {
         this.accept = accept;
+        if (!accept)
+            patterns = null;
     }
 
     /**
@@ -48,10 +131,46 @@ public class DFAState {
      * @return The reached state, or <tt>null</tt> if there is no outgoing transition for the character.
      */
     public DFAState to(char c) {
-        return transitions.get(c);
+        if (targets == null)
+            flatten();
+
+        // the last transition that starts at or before c.
+        int index = Arrays.binarySearch(los, c);
+        if (index < 0)
+            index = -index - 2;
+        if (index < 0 || c > his[index])
+            return null;
+
+        return targets[index];
+    }
+
+    /**
+     * Copy the transitions to sorted arrays, so that {@link #to(char)} can do a binary search
+     * without allocating a key for every character. The arrays are discarded when a
+     * transition is added.
+     */
+    private void flatten() {
+        char[] los = new char[transitions.size()];
+        char[] his = new char[transitions.size()];
+        DFAState[] targets = new DFAState[transitions.size()];
+        int i = 0;
+        for (Map.Entry<CharRange, DFAState> transition : transitions.entrySet()) {
+            los[i] = transition.getKey().getLo();
+            his[i] = transition.getKey().getHi();
+            targets[i] = transition.getValue();
+            ++i;
+        }
+
+        this.los = los;
+        this.his = his;
+        this.targets = targets;
     }
 
 
-    private final Map<Character, DFAState> transitions;
+    private final NavigableMap<CharRange, DFAState> transitions;
     private boolean accept;
+    private SortedSet<Integer> patterns;
+    private char[] los;
+    private char[] his;
+    private DFAState[] targets;
 }
@@ -0,0 +1,248 @@
+package dfa;
+
+import com.google.common.base.Preconditions;
+import match.Recognizer;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compiled automaton that is read directly from the binary format of
+ * {@link CompiledDFA#writeTo(java.io.OutputStream)}, usually from a memory-mapped file. The
+ * tables are views on the buffer, so no states or tables are built on the heap, and
+ * processes that map the same file share its pages.
+ * <p>
+ * By default, loading only checks the header and the file size, so it takes constant time
+ * and pages are read when recognition first touches them. Loading with verification also
+ * checks the checksum and the contents of the tables, which reads the whole file. Without
+ * verification, a corrupt file gives wrong results or an {@link IndexOutOfBoundsException}
+ * during recognition, since all reads are bounds-checked.
+ * <p>
+ * The automaton does not change after loading, so it can be shared between threads.
+ */
+public final class MappedDFA implements Recognizer {
+    /**
+     * Memory-map an automaton file, without verifying its contents.
+     *
+     * @throws IOException If the file cannot be read, or does not have a valid header.
+     */
+    public static MappedDFA load(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Memory-map an automaton file.
+     *
+     * @param path   The file.
+     * @param verify Check the checksum and the tables, which reads the whole file.
+     * @throws IOException If the file cannot be read, or is not a valid automaton.
+     */
+    public static MappedDFA load(Path path, boolean verify) throws IOException {
+        Preconditions.checkNotNull(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Automaton file is too large: " + path);
+
+            // the mapping remains valid after the channel is closed.
+            return new MappedDFA(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), verify);
+        }
+    }
+
+    /**
+     * Read an automaton from <i>buf[0..buf.limit() - 1]</i>.
+     *
+     * @param verify Check the checksum and the tables.
+     * @throws IOException If the buffer does not contain a valid automaton.
+     */
+    MappedDFA(ByteBuffer buf, boolean verify) throws IOException {
+        this.buf = buf;
+
+        if (buf.limit() < DFAFormat.HEADER_SIZE + 4 || buf.getInt(0) != DFAFormat.MAGIC)
+            throw new IOException("Not an automaton file");
+        if (buf.getInt(4) != DFAFormat.VERSION)
+            throw new IOException("Unsupported automaton format version: " + buf.getInt(4));
+
+        nStates = buf.getInt(8);
+        nClasses = buf.getInt(12);
+        int nIntervals = buf.getInt(16);
+        int nPatterns = buf.getInt(20);
+        if (nStates <= 0 || nClasses <= 0 || nIntervals <= 0 || nPatterns < 0 ||
+                DFAFormat.size(nStates, nClasses, nIntervals, nPatterns) + 4 != buf.limit())
+            throw new IOException("Automaton file is truncated or has an invalid header");
+
+        int offset = DFAFormat.HEADER_SIZE;
+        accept = slice(offset).asLongBuffer();
+        offset += 8 * DFAFormat.acceptWords(nStates);
+        transitions = slice(offset).asIntBuffer();
+        offset += 4 * nStates * nClasses;
+        patternOffsets = slice(offset).asIntBuffer();
+        offset += 4 * (nStates + 1);
+        patterns = slice(offset).asIntBuffer();
+        offset += 4 * nPatterns;
+        latin1 = slice(offset).asCharBuffer();
+        offset += 2 * DFAFormat.LATIN1_SIZE;
+        intervalStarts = slice(offset).asCharBuffer();
+        offset += 2 * nIntervals;
+        intervalClasses = slice(offset).asCharBuffer();
+        this.nIntervals = nIntervals;
+
+        ((Buffer) transitions).limit(nStates * nClasses);
+        ((Buffer) patternOffsets).limit(nStates + 1);
+        ((Buffer) patterns).limit(nPatterns);
+        ((Buffer) latin1).limit(DFAFormat.LATIN1_SIZE);
+        ((Buffer) intervalStarts).limit(nIntervals);
+        ((Buffer) intervalClasses).limit(nIntervals);
+
+        if (verify)
+            verify(nPatterns);
+    }
+
+    private ByteBuffer slice(int offset) {
+        // through Buffer, ByteBuffer.position(int) only exists since Java 9.
+        ByteBuffer view = buf.duplicate();
+        ((Buffer) view).position(offset);
+        return view.slice();
+    }
+
+    /**
+     * Check the checksum, and that the tables are consistent, so that a file with a valid
+     * checksum but invalid contents fails here rather than during recognition.
+     */
+    private void verify(int nPatterns) throws IOException {
+        int size = buf.limit() - 4;
+        if (DFAFormat.checksum(buf, size) != buf.getInt(size))
+            throw new IOException("Automaton file is corrupt, the checksum does not match");
+
+        DFAFormat.checkTransitions(transitions, nStates);
+
+        if (patternOffsets.get(0) != 0 || patternOffsets.get(nStates) != nPatterns)
+            throw new IOException("Automaton file is invalid, the pattern offsets do not cover the patterns");
+        for (int state = 0; state < nStates; ++state)
+            if (patternOffsets.get(state + 1) < patternOffsets.get(state))
+                throw new IOException("Automaton file is invalid, the pattern offsets are not ascending");
+
+        DFAFormat.checkClasses(latin1, intervalStarts, intervalClasses, nClasses);
+    }
+
+    /**
+     * Get the number of the start state.
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * Get the number of states in the automaton (excluding the implicit dead state).
+     */
+    public int getNumberOfStates() {
+        return nStates;
+    }
+
+    public int getNumberOfClasses() {
+        return nClasses;
+    }
+
+    /**
+     * Get the character class of a character.
+     */
+    public int classOf(char c) {
+        if (c < DFAFormat.LATIN1_SIZE)
+            return latin1.get(c);
+
+        // the last interval that starts at or before c.
+        int lo = 0;
+        int hi = nIntervals - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (intervalStarts.get(mid) <= c)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+
+        return intervalClasses.get(lo);
+    }
+
+    public boolean isAccept(int state) {
+        return state != CompiledDFA.DEAD && (accept.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Get the patterns of a state, see {@link DFAState#addPattern(int)}.
+     *
+     * @return The patterns in ascending order, no patterns for {@link CompiledDFA#DEAD}.
+     */
+    public int[] getPatterns(int state) {
+        if (state == CompiledDFA.DEAD)
+            return new int[0];
+
+        int from = patternOffsets.get(state);
+        int[] statePatterns = new int[patternOffsets.get(state + 1) - from];
+        for (int i = 0; i < statePatterns.length; ++i)
+            statePatterns[i] = patterns.get(from + i);
+
+        return statePatterns;
+    }
+
+    /**
+     * Follow the transition for the given character.
+     *
+     * @param state The state to start from, must not be {@link CompiledDFA#DEAD}.
+     * @param c     Transition character.
+     * @return The reached state, or {@link CompiledDFA#DEAD} if there is no transition for the character.
+     */
+    public int step(int state, char c) {
+        return transitions.get(state * nClasses + classOf(c));
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to this DFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return isAccept(run(string));
+    }
+
+    /**
+     * Get the patterns that match a string, in an automaton for several patterns.
+     *
+     * @param string The string to be recognized.
+     * @return The patterns of the state that is reached, in ascending order.
+     */
+    public int[] matchingPatterns(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return getPatterns(run(string));
+    }
+
+    private int run(CharSequence string) {
+        int state = 0;
+        for (int i = 0; i < string.length() && state != CompiledDFA.DEAD; ++i)
+            state = step(state, string.charAt(i));
+
+        return state;
+    }
+
+    private final ByteBuffer buf;
+    private final int nStates;
+    private final int nClasses;
+    private final int nIntervals;
+    private final LongBuffer accept;
+    private final IntBuffer transitions;
+    private final IntBuffer patternOffsets;
+    private final IntBuffer patterns;
+    private final CharBuffer latin1;
+    private final CharBuffer intervalStarts;
+    private final CharBuffer intervalClasses;
+}
@@ -0,0 +1,53 @@
+package dfa;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The position of a match in a string: the characters <i>start..end - 1</i>.
+ */
+public final class Match {
+    public Match(int start, int end) {
+        Preconditions.checkArgument(start >= 0 && start <= end, "Invalid match: [%s, %s)", start, end);
+
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Get the offset of the first character of the match.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the offset after the last character of the match.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Match))
+            return false;
+
+        Match other = (Match) o;
+        return start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start + end;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%d, %d)", start, end);
+    }
+
+    private final int start;
+    private final int end;
+}
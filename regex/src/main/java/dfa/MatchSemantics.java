@@ -0,0 +1,19 @@
+package dfa;
+
+/**
+ * Semantics for choosing between overlapping matches in {@link Searcher}. In both cases, the
+ * match that starts first is chosen, they differ in where the match ends.
+ */
+public enum MatchSemantics {
+    /**
+     * The longest match from the leftmost start (POSIX semantics).
+     */
+    LEFTMOST_LONGEST,
+
+    /**
+     * The first match that is found from the leftmost start, which is the shortest match.
+     * A DFA does not know the order of alternatives, so this does not follow the alternation
+     * priorities of backtracking matchers.
+     */
+    LEFTMOST_FIRST
+}
@@ -0,0 +1,416 @@
+package dfa;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import match.Recognizer;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A compiled automaton whose transitions and accepting states are stored outside the Java
+ * heap, in direct buffers. The transition table is split into chunks of at most
+ * {@link #MAX_CHUNK_SIZE} bytes, so that it is not limited by the maximum size of an array
+ * or a buffer. Only the character classes are kept on the heap; their size depends on the
+ * alphabet, not on the number of states. Automata with billions of table entries can
+ * therefore be used without a large heap, and without putting pressure on the garbage
+ * collector.
+ * <p>
+ * The memory is released by {@link #close()}, after which the automaton cannot be used
+ * anymore. The automaton does not change after it is built, so it can be shared between
+ * threads. {@link #recognize(CharSequence)} can be called concurrently with {@link #close()}:
+ * a call that is running keeps the memory alive until it returns, and later calls throw an
+ * {@link IllegalStateException}. The per-character methods {@link #step(int, char)} and
+ * {@link #isAccept(int)} do not check this, and calling them during or after
+ * {@link #close()} is undefined and can crash the JVM. Patterns are not stored, use
+ * {@link MappedDFA} for automata with several patterns.
+ */
+public final class OffHeapDFA implements Recognizer, Closeable {
+    /**
+     * The maximum size in bytes of a chunk of the transition table.
+     */
+    public static final int MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Copy a compiled automaton to off-heap memory.
+     */
+    public static OffHeapDFA of(CompiledDFA dfa) {
+        Preconditions.checkNotNull(dfa);
+
+        Alphabet alphabet = dfa.getAlphabet();
+        SortedMap<CharRange, Integer> intervals = DFAFormat.intervals(alphabet);
+        char[] latin1 = new char[DFAFormat.LATIN1_SIZE];
+        for (char c = 0; c < latin1.length; ++c)
+            latin1[c] = (char) alphabet.classOf(c);
+        char[] intervalStarts = new char[intervals.size()];
+        char[] intervalClasses = new char[intervals.size()];
+        int interval = 0;
+        for (Map.Entry<CharRange, Integer> entry : intervals.entrySet()) {
+            intervalStarts[interval] = entry.getKey().getLo();
+            intervalClasses[interval++] = (char) (int) entry.getValue();
+        }
+
+        int nStates = dfa.getNumberOfStates();
+        int nClasses = dfa.getNumberOfClasses();
+        OffHeapDFA offHeap = new OffHeapDFA(nStates, nClasses, latin1, intervalStarts, intervalClasses);
+
+        for (int state = 0; state < nStates; ++state) {
+            if (dfa.isAccept(state))
+                offHeap.accept.put(state >>> 6, offHeap.accept.get(state >>> 6) | (1L << state));
+
+            IntBuffer chunk = offHeap.transitions[state >>> offHeap.chunkShift];
+            int rowOffset = (state & offHeap.chunkMask) * nClasses;
+            for (int cls = 0; cls < nClasses; ++cls)
+                chunk.put(rowOffset + cls, dfa.step(state, alphabet.representative(cls)));
+        }
+
+        return offHeap;
+    }
+
+    /**
+     * Read an automaton in the binary format of {@link CompiledDFA#writeTo(java.io.OutputStream)}
+     * into off-heap memory. The file is streamed, the tables are not built on the heap.
+     *
+     * @throws IOException If the file cannot be read, or is not a valid automaton.
+     */
+    public static OffHeapDFA load(Path path) throws IOException {
+        Preconditions.checkNotNull(path);
+
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(file), crc));
+
+            if (Files.size(path) < DFAFormat.HEADER_SIZE + 4 || in.readInt() != DFAFormat.MAGIC)
+                throw new IOException("Not an automaton file");
+            int version = in.readInt();
+            if (version != DFAFormat.VERSION)
+                throw new IOException("Unsupported automaton format version: " + version);
+
+            int nStates = in.readInt();
+            int nClasses = in.readInt();
+            int nIntervals = in.readInt();
+            int nPatterns = in.readInt();
+            if (nStates <= 0 || nClasses <= 0 || nIntervals <= 0 || nPatterns < 0 ||
+                    DFAFormat.size(nStates, nClasses, nIntervals, nPatterns) + 4 != Files.size(path))
+                throw new IOException("Automaton file is truncated or has an invalid header");
+
+            // the accept words and the transitions are read before the character classes
+            // that are needed to construct the automaton, so they are read into temporary
+            // buffers that are then handed over.
+            ByteBuffer acceptBuf = ByteBuffer.allocateDirect(8 * DFAFormat.acceptWords(nStates));
+            ByteBuffer[] chunks = new ByteBuffer[0];
+            try {
+                byte[] block = new byte[BLOCK_SIZE];
+                read(in, acceptBuf, block);
+
+                int chunkShift = chunkShift(nClasses);
+                chunks = new ByteBuffer[numberOfChunks(nStates, chunkShift)];
+                for (int chunk = 0; chunk < chunks.length; ++chunk) {
+                    int rows = Math.min(1 << chunkShift, nStates - (chunk << chunkShift));
+                    chunks[chunk] = ByteBuffer.allocateDirect(4 * rows * nClasses);
+                    read(in, chunks[chunk], block);
+                }
+
+                // patterns are not stored.
+                skip(in, 4L * (nStates + 1) + 4L * nPatterns, block);
+
+                char[] latin1 = readChars(in, DFAFormat.LATIN1_SIZE);
+                char[] intervalStarts = readChars(in, nIntervals);
+                char[] intervalClasses = readChars(in, nIntervals);
+
+                int checksum = (int) crc.getValue();
+                if (in.readInt() != checksum)
+                    throw new IOException("Automaton file is corrupt, the checksum does not match");
+
+                for (ByteBuffer chunk : chunks)
+                    DFAFormat.checkTransitions(chunk.asIntBuffer(), nStates);
+                DFAFormat.checkClasses(CharBuffer.wrap(latin1), CharBuffer.wrap(intervalStarts),
+                        CharBuffer.wrap(intervalClasses), nClasses);
+
+                return new OffHeapDFA(nStates, nClasses, latin1, intervalStarts, intervalClasses, acceptBuf, chunks);
+            } catch (IOException | RuntimeException e) {
+                free(acceptBuf);
+                for (ByteBuffer chunk : chunks)
+                    free(chunk);
+                throw e;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Automaton file is truncated", e);
+        }
+    }
+
+    private OffHeapDFA(int nStates, int nClasses, char[] latin1, char[] intervalStarts, char[] intervalClasses) {
+        this(nStates, nClasses, latin1, intervalStarts, intervalClasses,
+                ByteBuffer.allocateDirect(8 * DFAFormat.acceptWords(nStates)), allocateChunks(nStates, nClasses));
+    }
+
+    private OffHeapDFA(int nStates, int nClasses, char[] latin1, char[] intervalStarts, char[] intervalClasses,
+                       ByteBuffer acceptBuf, ByteBuffer[] chunks) {
+        this.nStates = nStates;
+        this.nClasses = nClasses;
+        this.latin1 = latin1;
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+
+        this.acceptBuf = acceptBuf;
+        this.accept = acceptBuf.asLongBuffer();
+        this.chunks = chunks;
+        this.transitions = new IntBuffer[chunks.length];
+        for (int chunk = 0; chunk < chunks.length; ++chunk)
+            transitions[chunk] = chunks[chunk].asIntBuffer();
+
+        chunkShift = chunkShift(nClasses);
+        chunkMask = (1 << chunkShift) - 1;
+        readers = new AtomicInteger();
+    }
+
+    /**
+     * Get the number of the start state.
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    /**
+     * Get the number of states in the automaton (excluding the implicit dead state).
+     */
+    public int getNumberOfStates() {
+        return nStates;
+    }
+
+    public int getNumberOfClasses() {
+        return nClasses;
+    }
+
+    /**
+     * Get the number of bytes of off-heap memory that is used by the automaton.
+     */
+    public long getOffHeapSize() {
+        long size = acceptBuf.capacity();
+        for (ByteBuffer chunk : chunks)
+            size += chunk.capacity();
+
+        return size;
+    }
+
+    /**
+     * Get the character class of a character.
+     */
+    public int classOf(char c) {
+        if (c < DFAFormat.LATIN1_SIZE)
+            return latin1[c];
+
+        // the last interval that starts at or before c.
+        int lo = 0;
+        int hi = intervalStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (intervalStarts[mid] <= c)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+
+        return intervalClasses[lo];
+    }
+
+    /**
+     * Check whether a state is accepting. The automaton must not be closed, see
+     * {@link #close()}.
+     */
+    public boolean isAccept(int state) {
+        return state != CompiledDFA.DEAD && (accept.get(state >>> 6) & (1L << state)) != 0;
+    }
+
+    /**
+     * Follow the transition for the given character.
+     *
+     * @param state The state to start from, must not be {@link CompiledDFA#DEAD}.
+     * @param c     Transition character.
+     * @return The reached state, or {@link CompiledDFA#DEAD} if there is no transition for the character.
+     */
+    public int step(int state, char c) {
+        return transitions[state >>> chunkShift].get((state & chunkMask) * nClasses + classOf(c));
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to this DFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     * @throws IllegalStateException If the automaton is closed.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        acquire();
+        try {
+            int state = 0;
+            for (int i = 0; i < string.length() && state != CompiledDFA.DEAD; ++i)
+                state = transitions[state >>> chunkShift].get((state & chunkMask) * nClasses + classOf(string.charAt(i)));
+
+            return state != CompiledDFA.DEAD && (accept.get(state >>> 6) & (1L << state)) != 0;
+        } finally {
+            readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Check whether the automaton is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Release the off-heap memory of the automaton. Calls of {@link #recognize(CharSequence)}
+     * that are running are waited for. Closing an automaton that is already closed has no
+     * effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+
+        // a reader either sees closed and backs off, or is counted before closed is set.
+        closed = true;
+        while (readers.get() != 0)
+            Thread.yield();
+
+        free(acceptBuf);
+        for (ByteBuffer chunk : chunks)
+            free(chunk);
+    }
+
+    /**
+     * Register a reader, so that the memory is not released until it is done.
+     *
+     * @throws IllegalStateException If the automaton is closed.
+     */
+    private void acquire() {
+        readers.incrementAndGet();
+        if (closed) {
+            readers.decrementAndGet();
+            throw new IllegalStateException("The automaton is closed");
+        }
+    }
+
+    /**
+     * Get the log2 of the number of rows in a chunk, the largest power of two such that
+     * a chunk fits in {@link #MAX_CHUNK_SIZE} bytes. Chunks of a power of two rows can be
+     * addressed with a shift and a mask.
+     */
+    private static int chunkShift(int nClasses) {
+        return 31 - Integer.numberOfLeadingZeros(Math.max(1, MAX_CHUNK_SIZE / (4 * nClasses)));
+    }
+
+    private static int numberOfChunks(int nStates, int chunkShift) {
+        return (int) (((long) nStates + (1 << chunkShift) - 1) >>> chunkShift);
+    }
+
+    private static ByteBuffer[] allocateChunks(int nStates, int nClasses) {
+        int chunkShift = chunkShift(nClasses);
+        ByteBuffer[] chunks = new ByteBuffer[numberOfChunks(nStates, chunkShift)];
+        for (int chunk = 0; chunk < chunks.length; ++chunk) {
+            int rows = Math.min(1 << chunkShift, nStates - (chunk << chunkShift));
+            chunks[chunk] = ByteBuffer.allocateDirect(4 * rows * nClasses);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Fill a buffer from a stream, through a heap block of constant size.
+     */
+    private static void read(DataInputStream in, ByteBuffer buf, byte[] block) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = Math.min(block.length, buf.remaining());
+            in.readFully(block, 0, n);
+            buf.put(block, 0, n);
+        }
+        // through Buffer, ByteBuffer.clear() only exists since Java 9.
+        ((Buffer) buf).clear();
+    }
+
+    private static void skip(DataInputStream in, long length, byte[] block) throws IOException {
+        // read rather than skip, the skipped bytes are part of the checksum.
+        while (length > 0) {
+            int n = (int) Math.min(block.length, length);
+            in.readFully(block, 0, n);
+            length -= n;
+        }
+    }
+
+    private static char[] readChars(DataInputStream in, int length) throws IOException {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i)
+            chars[i] = in.readChar();
+
+        return chars;
+    }
+
+    /**
+     * Release the memory of a direct buffer. There is no public API for this, so the
+     * cleaner of the buffer is invoked through the JDK internals that are available. If
+     * that fails, the memory is released when the buffer is garbage collected.
+     */
+    private static void free(ByteBuffer buf) {
+        try {
+            // Java 9 and later.
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buf);
+        } catch (NoSuchMethodException e) {
+            try {
+                // Java 8 and earlier.
+                Method cleanerMethod = buf.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buf);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                // left to the garbage collector.
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector.
+        }
+    }
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final int nStates;
+    private final int nClasses;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final char[] latin1;
+    private final char[] intervalStarts;
+    private final char[] intervalClasses;
+    private final ByteBuffer acceptBuf;
+    private final LongBuffer accept;
+    private final ByteBuffer[] chunks;
+    private final IntBuffer[] transitions;
+    private final AtomicInteger readers;
+    private volatile boolean closed;
+}
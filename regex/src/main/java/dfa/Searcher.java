@@ -0,0 +1,267 @@
+package dfa;
+
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import nfa.NFA;
+import nfa.NFAOperations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Unanchored search for the matches of a {@link DFA} in a string.
+ * <p>
+ * The start positions of all matches are found in a single backward pass over the string,
+ * with the reversal of the automaton (see {@link DFAOperations#reversalDFA(DFA)}) prefixed
+ * by <i>.*</i>: after reading the characters <i>n - 1..i</i> backwards, it is in an accepting
+ * state when a match starts at <i>i</i>. The end of a match is then found by running the
+ * anchored automaton forward from the start of the match.
+ * <p>
+ * With {@link MatchSemantics#LEFTMOST_LONGEST}, the forward run only stops when the automaton
+ * dies, which can be far beyond the end of the match (for instance <i>c|c.*d</i> in a long
+ * string without <i>d</i>). {@link #findAll(CharSequence)} therefore runs the forward
+ * automaton from all match starts in one pass: runs that reach the same state at the same
+ * position have the same future, so they are merged, and at most one run per state is
+ * active. Finding all matches takes <i>O(n * states)</i> time, and is linear in the length
+ * of the string for a given automaton. A single {@link #find(CharSequence, int)} takes time
+ * that is linear in <i>n - from</i>, so repeated calls should not be used to iterate over
+ * the matches of a string.
+ * <p>
+ * Both automata are compiled when the searcher is constructed, so a searcher can be shared
+ * between threads.
+ */
+public final class Searcher {
+    /**
+     * Construct a searcher with {@link MatchSemantics#LEFTMOST_LONGEST} semantics.
+     */
+    public Searcher(DFA dfa) {
+        this(dfa, MatchSemantics.LEFTMOST_LONGEST);
+    }
+
+    public Searcher(DFA dfa, MatchSemantics semantics) {
+        Preconditions.checkNotNull(dfa);
+        Preconditions.checkNotNull(semantics);
+
+        this.semantics = semantics;
+        forward = DFAOperations.minimize(dfa).compile();
+
+        // the start state of the reversal has no incoming transitions, so the loop is a .* prefix.
+        NFA reverse = DFAOperations.reversalDFA(dfa);
+        reverse.getStartState().addTransition(CharRange.ANY, reverse.getStartState());
+        starts = DFAOperations.minimize(NFAOperations.determinize(reverse)).compile();
+    }
+
+    public MatchSemantics getSemantics() {
+        return semantics;
+    }
+
+    /**
+     * Find the first match in a string.
+     *
+     * @param string The string to search.
+     * @return The match, or {@code null} if the string does not contain a match.
+     */
+    public Match find(CharSequence string) {
+        return find(string, 0);
+    }
+
+    /**
+     * Find the first match in a string that starts at or after the given offset.
+     *
+     * @param string The string to search.
+     * @param from   The offset to start searching.
+     * @return The match, or {@code null} if there is no match.
+     */
+    public Match find(CharSequence string, int from) {
+        Preconditions.checkNotNull(string);
+        Preconditions.checkPositionIndex(from, string.length());
+
+        int start = firstMatchStart(string, from);
+        if (start == -1)
+            return null;
+
+        return new Match(start, matchEnd(string, start));
+    }
+
+    /**
+     * Find all non-overlapping matches in a string, from left to right. After an empty
+     * match, the search continues at the next character.
+     *
+     * @param string The string to search.
+     * @return The matches, ordered by their offsets.
+     */
+    public List<Match> findAll(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        BitSet matchStarts = matchStarts(string);
+
+        // the runs from the starts of leftmost-first matches stop at the end of the match, so
+        // they do not overlap, and they can be done one by one.
+        int[] ends = semantics == MatchSemantics.LEFTMOST_LONGEST ? longestMatchEnds(string, matchStarts) : null;
+
+        List<Match> matches = new ArrayList<>();
+        int pos = 0;
+        int idx = 0; // the number of the match start in matchStarts
+        for (int start = matchStarts.nextSetBit(0); start != -1; start = matchStarts.nextSetBit(start + 1), ++idx) {
+            if (start < pos)
+                continue;
+
+            int end = ends != null ? ends[idx] : matchEnd(string, start);
+            matches.add(new Match(start, end));
+            pos = end > start ? end : end + 1;
+        }
+
+        return matches;
+    }
+
+    /**
+     * Get the offsets at which a match starts, using one backward pass.
+     */
+    private BitSet matchStarts(CharSequence string) {
+        BitSet matchStarts = new BitSet(string.length() + 1);
+
+        int state = starts.getStartState();
+        if (starts.isAccept(state))
+            matchStarts.set(string.length());
+
+        for (int i = string.length() - 1; i >= 0; --i) {
+            state = starts.step(state, string.charAt(i));
+            if (state == CompiledDFA.DEAD)
+                break;
+            if (starts.isAccept(state))
+                matchStarts.set(i);
+        }
+
+        return matchStarts;
+    }
+
+    /**
+     * Get the first offset in <i>from..n</i> at which a match starts, using one backward pass.
+     *
+     * @return The offset, or -1 if there is no match.
+     */
+    private int firstMatchStart(CharSequence string, int from) {
+        int state = starts.getStartState();
+        int first = starts.isAccept(state) ? string.length() : -1;
+
+        for (int i = string.length() - 1; i >= from; --i) {
+            state = starts.step(state, string.charAt(i));
+            if (state == CompiledDFA.DEAD)
+                break;
+            if (starts.isAccept(state))
+                first = i;
+        }
+
+        return first;
+    }
+
+    /**
+     * Get the ends of the longest matches from all match starts, in one forward pass. A
+     * run is started at every match start. When a run reaches a state that another run is in
+     * at the same position, it is merged into that (earlier) run: it will accept at the same
+     * positions from there on. The end of a merged run is the end of the run that it was
+     * merged into, if that end is at or after the merge, and otherwise its own last accept
+     * before the merge.
+     *
+     * @return The end of the longest match from the <i>i</i>-th match start, for every <i>i</i>.
+     */
+    private int[] longestMatchEnds(CharSequence string, BitSet matchStarts) {
+        int nStarts = matchStarts.cardinality();
+        int[] ends = new int[nStarts];
+        int[] parents = new int[nStarts];
+        int[] mergePositions = new int[nStarts];
+        Arrays.fill(ends, -1);
+        Arrays.fill(parents, -1);
+
+        // the active runs, ordered by their start, and the run that is in each state at the
+        // position stamp[state].
+        int nForwardStates = forward.getNumberOfStates();
+        int[] runs = new int[nForwardStates];
+        int[] runStates = new int[nForwardStates];
+        int nRuns = 0;
+        int[] owners = new int[nForwardStates];
+        int[] stamps = new int[nForwardStates];
+        Arrays.fill(stamps, -1);
+
+        int nextRun = 0;
+        int pos = matchStarts.nextSetBit(0);
+        while (pos != -1) {
+            if (matchStarts.get(pos)) {
+                int run = nextRun++;
+                int state = forward.getStartState();
+                if (stamps[state] == pos) {
+                    parents[run] = owners[state];
+                    mergePositions[run] = pos;
+                } else {
+                    owners[state] = run;
+                    stamps[state] = pos;
+                    runs[nRuns] = run;
+                    runStates[nRuns++] = state;
+                }
+            }
+
+            for (int i = 0; i < nRuns; ++i)
+                if (forward.isAccept(runStates[i]))
+                    ends[runs[i]] = pos;
+
+            if (pos == string.length())
+                break;
+
+            char c = string.charAt(pos++);
+            int nStepped = 0;
+            for (int i = 0; i < nRuns; ++i) {
+                int state = forward.step(runStates[i], c);
+                if (state == CompiledDFA.DEAD)
+                    continue;
+
+                if (stamps[state] == pos) {
+                    parents[runs[i]] = owners[state];
+                    mergePositions[runs[i]] = pos;
+                } else {
+                    owners[state] = runs[i];
+                    stamps[state] = pos;
+                    runs[nStepped] = runs[i];
+                    runStates[nStepped++] = state;
+                }
+            }
+            nRuns = nStepped;
+
+            if (nRuns == 0)
+                pos = matchStarts.nextSetBit(pos);
+        }
+
+        // parents are earlier runs, so their ends are final when they are used.
+        for (int run = 0; run < nStarts; ++run)
+            if (parents[run] != -1 && ends[parents[run]] >= mergePositions[run])
+                ends[run] = ends[parents[run]];
+
+        return ends;
+    }
+
+    /**
+     * Run the anchored automaton from the start of a match to find its end.
+     */
+    private int matchEnd(CharSequence string, int start) {
+        int state = forward.getStartState();
+        int end = forward.isAccept(state) ? start : -1;
+
+        for (int i = start; i < string.length(); ++i) {
+            if (end != -1 && semantics == MatchSemantics.LEFTMOST_FIRST)
+                break;
+
+            state = forward.step(state, string.charAt(i));
+            if (state == CompiledDFA.DEAD)
+                break;
+            if (forward.isAccept(state))
+                end = i + 1;
+        }
+
+        return end;
+    }
+
+    private final MatchSemantics semantics;
+    private final CompiledDFA forward;
+    private final CompiledDFA starts;
+}
@@ -0,0 +1,91 @@
+package dfa;
+
+import alphabet.CharRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits ranges of code points into sequences of byte ranges, such that the UTF-8 encodings
+ * of the code points in the range are exactly the byte strings that match one of the
+ * sequences. For instance, <i>[U+0000, U+07FF]</i> becomes <i>[00-7F]</i> and
+ * <i>[C2-DF][80-BF]</i>. Byte ranges are represented as {@link CharRange}s in <i>[0, 255]</i>.
+ */
+final class Utf8Sequences {
+    /**
+     * The largest code point of each encoding length.
+     */
+    private static final int[] MAX_CODE_POINTS = {0x7F, 0x7FF, 0xFFFF, Character.MAX_CODE_POINT};
+
+    private Utf8Sequences() {
+    }
+
+    /**
+     * Get the byte range sequences of the code points <i>[lo, hi]</i>. The range should not
+     * contain surrogates.
+     */
+    static List<CharRange[]> of(int lo, int hi) {
+        List<CharRange[]> sequences = new ArrayList<>();
+        split(lo, hi, sequences);
+        return sequences;
+    }
+
+    private static void split(int lo, int hi, List<CharRange[]> sequences) {
+        // code points with different encoding lengths
+        for (int max : MAX_CODE_POINTS) {
+            if (lo <= max && hi > max) {
+                split(lo, max, sequences);
+                split(max + 1, hi, sequences);
+                return;
+            }
+        }
+
+        // split until the continuation bytes of lo and hi are the first and last
+        // continuation bytes, so that every byte position is an independent range.
+        int length = length(lo);
+        for (int i = 1; i < length; ++i) {
+            int mask = (1 << (6 * i)) - 1;
+            if ((lo & ~mask) != (hi & ~mask)) {
+                if ((lo & mask) != 0) {
+                    split(lo, lo | mask, sequences);
+                    split((lo | mask) + 1, hi, sequences);
+                    return;
+                }
+                if ((hi & mask) != mask) {
+                    split(lo, (hi & ~mask) - 1, sequences);
+                    split(hi & ~mask, hi, sequences);
+                    return;
+                }
+            }
+        }
+
+        int[] loBytes = encode(lo, length);
+        int[] hiBytes = encode(hi, length);
+        CharRange[] sequence = new CharRange[length];
+        for (int i = 0; i < length; ++i)
+            sequence[i] = CharRange.of((char) loBytes[i], (char) hiBytes[i]);
+        sequences.add(sequence);
+    }
+
+    private static int length(int codePoint) {
+        int length = 1;
+        while (codePoint > MAX_CODE_POINTS[length - 1])
+            ++length;
+        return length;
+    }
+
+    private static int[] encode(int codePoint, int length) {
+        int[] bytes = new int[length];
+        if (length == 1) {
+            bytes[0] = codePoint;
+            return bytes;
+        }
+
+        for (int i = length - 1; i > 0; --i) {
+            bytes[i] = 0x80 | (codePoint & 0x3F);
+            codePoint >>>= 6;
+        }
+        bytes[0] = ((0xFF00 >> length) & 0xFF) | codePoint; // 110xxxxx, 1110xxxx or 11110xxx
+        return bytes;
+    }
+}
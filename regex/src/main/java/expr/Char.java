@@ -1,7 +1,7 @@
 package expr;
 
 import nfa.NFA;
-import nfa.NFAOperations;
+import nfa.NFABuilder;
 
 public final class Char implements Expression {
     Char(char c) {
@@ -10,7 +10,27 @@ public final class Char implements Expression {
 
     @Override
     public NFA compile() {
-        return NFAOperations.character(c);
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        return builder.character(c);
+    }
+
+    char getCharacter() {
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Char && c == ((Char) o).c;
+    }
+
+    @Override
+    public int hashCode() {
+        return c;
     }
 
     @Override
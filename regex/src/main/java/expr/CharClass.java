@@ -0,0 +1,63 @@
+package expr;
+
+import alphabet.CharRange;
+import nfa.NFA;
+import nfa.NFABuilder;
+
+import java.util.List;
+
+/**
+ * Expression that recognizes one character from a set of character ranges.
+ */
+public final class CharClass implements Expression {
+    CharClass(List<CharRange> ranges) {
+        this.ranges = ranges;
+        hash = ranges.hashCode();
+    }
+
+    @Override
+    public NFA compile() {
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        return builder.characterClass(ranges);
+    }
+
+    List<CharRange> getRanges() {
+        return ranges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CharClass))
+            return false;
+
+        CharClass other = (CharClass) o;
+        return hash == other.hash && ranges.equals(other.ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (ranges.size() == 1 && ranges.get(0).equals(CharRange.ANY))
+            return ".";
+
+        StringBuilder sb = new StringBuilder("[");
+        for (CharRange range : ranges)
+            sb.append(range);
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private final List<CharRange> ranges;
+    private final int hash;
+}
@@ -1,17 +1,66 @@
 package expr;
 
 import nfa.NFA;
-import nfa.NFAOperations;
+import nfa.NFABuilder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 public final class Concat implements Expression {
     Concat(Expression expr, Expression expr2) {
         this.expr = expr;
         this.expr2 = expr2;
+        hash = 31 * (31 * 1 + expr.hashCode()) + expr2.hashCode();
     }
 
     @Override
     public NFA compile() {
-        return NFAOperations.concatenate(expr.compile(), expr2.compile());
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        // Long chains such as Expr.str are left-deep, walk the left spine iteratively
+        // rather than recursively.
+        Deque<Expression> rights = new ArrayDeque<>();
+        Expression left = this;
+        while (left instanceof Concat) {
+            rights.push(((Concat) left).expr2);
+            left = ((Concat) left).expr;
+        }
+
+        NFABuilder.Fragment fragment = left.compile(builder);
+        while (!rights.isEmpty())
+            fragment = builder.concatenate(fragment, rights.pop().compile(builder));
+
+        return fragment;
+    }
+
+    Expression getExpr() {
+        return expr;
+    }
+
+    Expression getExpr2() {
+        return expr2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Concat))
+            return false;
+
+        // the operands of interned expressions are interned, so they are usually identical.
+        Concat other = (Concat) o;
+        return hash == other.hash && (expr == other.expr || expr.equals(other.expr)) &&
+                (expr2 == other.expr2 || expr2.equals(other.expr2));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     @Override
@@ -21,5 +70,6 @@ public final class Concat implements Expression {
 
     private final Expression expr;
     private final Expression expr2;
+    private final int hash;
 
 }
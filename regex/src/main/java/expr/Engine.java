@@ -0,0 +1,77 @@
+package expr;
+
+import com.google.common.base.Preconditions;
+import dfa.DFAOperations;
+import match.Recognizer;
+import nfa.CompactNFA;
+import nfa.LazyDFA;
+import nfa.NFAOperations;
+
+/**
+ * The engines that can recognize an expression, and a selector that picks one.
+ */
+public enum Engine {
+    /**
+     * Bit-parallel simulation of the Glushkov automaton, for small expressions
+     * (see {@link Glushkov}).
+     */
+    GLUSHKOV {
+        @Override
+        public Recognizer compile(Expression expr) {
+            return new Glushkov(expr);
+        }
+    },
+
+    /**
+     * A minimized, table-driven DFA. Determinization can be exponential in the size of
+     * the expression.
+     */
+    COMPILED_DFA {
+        @Override
+        public Recognizer compile(Expression expr) {
+            return DFAOperations.minimize(NFAOperations.determinize(expr.compile())).compile();
+        }
+    },
+
+    /**
+     * A DFA that is constructed during recognition, with a bounded number of states
+     * (see {@link LazyDFA}). The recognizer should not be shared between threads.
+     */
+    LAZY_DFA {
+        @Override
+        public Recognizer compile(Expression expr) {
+            return new LazyDFA(expr.compile());
+        }
+    },
+
+    /**
+     * Set-based simulation of the NFA.
+     */
+    NFA_SIMULATION {
+        @Override
+        public Recognizer compile(Expression expr) {
+            return new CompactNFA(expr.compile());
+        }
+    };
+
+    /**
+     * Compile an expression for this engine.
+     */
+    public abstract Recognizer compile(Expression expr);
+
+    /**
+     * Select an engine for an expression: {@link #GLUSHKOV} if the positions of the
+     * expression fit in a few words, {@link #LAZY_DFA} otherwise.
+     */
+    public static Engine select(Expression expr) {
+        Preconditions.checkNotNull(expr);
+        return Glushkov.fits(expr) ? GLUSHKOV : LAZY_DFA;
+    }
+
+    /**
+     * Compile an expression with the engine that is selected by {@link #select(Expression)}.
+     */
+    public static Recognizer recognizer(Expression expr) {
+        return select(expr).compile(expr);
+    }
+}
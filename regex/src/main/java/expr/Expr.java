@@ -1,6 +1,14 @@
 package expr;
 
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * This class is used to build the Expressions that are used to compile the NFAs used in this project
@@ -8,7 +16,49 @@ import com.google.common.base.Preconditions;
  */
 public final class Expr {
     public static Expression ch(char c) {
-        return new Char(c);
+        return intern(new Char(c));
+    }
+
+    /**
+     * Create an expression that recognizes one character in the range <i>[lo, hi]</i>.
+     */
+    public static Expression range(char lo, char hi) {
+        Preconditions.checkArgument(lo <= hi, "Empty character range: %s-%s", lo, hi);
+
+        return intern(new CharClass(Collections.singletonList(CharRange.of(lo, hi))));
+    }
+
+    /**
+     * Create an expression that recognizes one of the given characters. Consecutive
+     * characters are merged into ranges.
+     */
+    public static Expression anyOf(char... chars) {
+        Preconditions.checkNotNull(chars);
+        Preconditions.checkArgument(chars.length > 0);
+
+        char[] sorted = Arrays.copyOf(chars, chars.length);
+        Arrays.sort(sorted);
+
+        List<CharRange> ranges = new ArrayList<>();
+        char lo = sorted[0];
+        char hi = sorted[0];
+        for (int i = 1; i < sorted.length; ++i) {
+            if (sorted[i] > hi + 1) {
+                ranges.add(CharRange.of(lo, hi));
+                lo = sorted[i];
+            }
+            hi = sorted[i];
+        }
+        ranges.add(CharRange.of(lo, hi));
+
+        return intern(new CharClass(ranges));
+    }
+
+    /**
+     * Create an expression that recognizes any character.
+     */
+    public static Expression any() {
+        return intern(new CharClass(Collections.singletonList(CharRange.ANY)));
     }
 
     /**
@@ -18,7 +68,7 @@ public final class Expr {
         Preconditions.checkNotNull(expr);
         Preconditions.checkNotNull(expr2);
 
-        return new Concat(expr, expr2);
+        return intern(new Concat(expr, expr2));
     }
 
     /**
@@ -28,7 +78,7 @@ public final class Expr {
         Preconditions.checkNotNull(expr);
         Preconditions.checkNotNull(expr2);
 
-        return new Or(expr, expr2);
+        return intern(new Or(expr, expr2));
     }
 
     /**
@@ -37,7 +87,7 @@ public final class Expr {
     public static Expression plus(Expression expr) {
         Preconditions.checkNotNull(expr);
 
-        return concat(expr, star(expr));
+        return intern(new KleenePlus(expr));
     }
 
     /**
@@ -46,7 +96,7 @@ public final class Expr {
     public static Expression star(Expression expr) {
         Preconditions.checkNotNull(expr);
 
-        return new KleeneStar(expr);
+        return intern(new KleeneStar(expr));
     }
 
 
@@ -66,6 +116,37 @@ public final class Expr {
         return joinedCharsResult;
     }
 
+    /**
+     * Parse an expression. The syntax is a subset of the usual regular expression syntax:
+     * <i>|</i> for union, <i>*</i> and <i>+</i> for repetition, parentheses for grouping and
+     * <i>.</i> for any character. The characters <i>\|*+().</i> are matched literally when
+     * they are escaped with a backslash, and <i>\n</i>, <i>\r</i> and <i>\t</i> are the usual
+     * control characters.
+     *
+     * @param pattern The pattern, which should not be empty.
+     * @return The expression.
+     * @throws IllegalArgumentException If the pattern is not valid.
+     */
+    public static Expression parse(String pattern) {
+        Preconditions.checkNotNull(pattern);
+
+        return new Parser(pattern).parse();
+    }
+
+    /**
+     * Get the canonical instance of an expression. Expressions are compared structurally, and
+     * since the constructors of the expressions are package-private and all expressions are
+     * created through the methods of this class, the operands of an expression are canonical
+     * as well. Equal sub-expressions are therefore shared, and
+     * expressions form a DAG rather than a tree. The canonical instances are weakly
+     * referenced, so expressions that are no longer used can be collected.
+     */
+    private static Expression intern(Expression expr) {
+        return INTERNER.intern(expr);
+    }
+
+    private static final Interner<Expression> INTERNER = Interners.newWeakInterner();
+
     // CONSTRUCTOR
     private Expr() {
     }
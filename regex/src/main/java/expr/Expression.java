@@ -1,6 +1,7 @@
 package expr;
 
 import nfa.NFA;
+import nfa.NFABuilder;
 
 /**
  * This interface is used to tag expression types.
@@ -11,4 +12,11 @@ public interface Expression {
      * @return The automaton.
      */
     NFA compile();
+
+    /**
+     * Compile the expression into the given builder, without cloning intermediate automata.
+     * @param builder The builder that allocates the states.
+     * @return The fragment that recognizes the expression.
+     */
+    NFABuilder.Fragment compile(NFABuilder builder);
 }
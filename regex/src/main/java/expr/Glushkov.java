@@ -0,0 +1,309 @@
+package expr;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import match.Recognizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Bit-parallel recognizer for small expressions, based on the Glushkov (position) automaton.
+ * Every character or character class in the expression is a position, and the automaton has
+ * one state per position plus an initial state. The states are the bits of a few machine
+ * words, so a set of active states is updated with word operations (Shift-And style):
+ * <pre>
+ *     D' = follow(D) &amp; mask(c)
+ * </pre>
+ * where <i>mask(c)</i> is the set of positions that match <i>c</i>, and <i>follow(D)</i> is
+ * the union of the follow sets of the active positions. The follow sets are looked up per
+ * byte of <i>D</i> in precomputed tables.
+ * <p>
+ * The construction is linear in the size of the expression and does not determinize, so it
+ * has no state blowup. A Glushkov recognizer does not change after construction.
+ */
+public final class Glushkov implements Recognizer {
+    /**
+     * The maximum number of positions, such that the states fit in four words.
+     */
+    public static final int MAX_POSITIONS = 255;
+
+    /**
+     * Construct the recognizer for an expression.
+     *
+     * @param expr The expression, see {@link #fits(Expression)}.
+     */
+    public Glushkov(Expression expr) {
+        Preconditions.checkNotNull(expr);
+        Preconditions.checkArgument(fits(expr), "Expression does not fit in %s positions: %s", MAX_POSITIONS, expr);
+
+        // position 0 is the initial state.
+        List<List<CharRange>> labels = new ArrayList<>();
+        labels.add(null);
+        List<BitSet> follow = new ArrayList<>();
+        follow.add(new BitSet());
+
+        Node root = positions(expr, labels, follow);
+
+        nPositions = labels.size() - 1;
+        int nBits = nPositions + 1;
+        nWords = (nBits + 63) / 64;
+        nChunks = (nBits + 7) / 8;
+
+        // the initial state is followed by the first positions.
+        follow.get(0).or(root.first);
+
+        // the positions that match each character class
+        List<CharRange> allRanges = new ArrayList<>();
+        for (int pos = 1; pos <= nPositions; ++pos)
+            allRanges.addAll(labels.get(pos));
+        alphabet = Alphabet.of(allRanges);
+        masks = new long[alphabet.getNumberOfClasses() * nWords];
+        for (int pos = 1; pos <= nPositions; ++pos)
+            for (CharRange range : labels.get(pos))
+                for (int cls : alphabet.classes(range))
+                    masks[cls * nWords + pos / 64] |= 1L << pos;
+
+        // followTable[(chunk * 256 + v) * nWords + w] is word w of the union of the follow sets
+        // of the positions 8 * chunk + j for the bits j in v.
+        long[][] followWords = new long[nChunks * 8][];
+        for (int pos = 0; pos < followWords.length; ++pos)
+            followWords[pos] = Arrays.copyOf(pos <= nPositions ? follow.get(pos).toLongArray() : new long[0], nWords);
+
+        followTable = new long[nChunks * CHUNK_VALUES * nWords];
+        for (int chunk = 0; chunk < nChunks; ++chunk) {
+            for (int v = 1; v < CHUNK_VALUES; ++v) {
+                int pos = chunk * 8 + Integer.numberOfTrailingZeros(v);
+                int entry = (chunk * CHUNK_VALUES + v) * nWords;
+                int rest = (chunk * CHUNK_VALUES + (v & (v - 1))) * nWords;
+
+                for (int w = 0; w < nWords; ++w)
+                    followTable[entry + w] = followTable[rest + w] | followWords[pos][w];
+            }
+        }
+
+        acceptMask = new long[nWords];
+        long[] lastWords = root.last.toLongArray();
+        System.arraycopy(lastWords, 0, acceptMask, 0, lastWords.length);
+        if (root.nullable)
+            acceptMask[0] |= 1L;
+    }
+
+    /**
+     * Check whether an expression can be recognized by a Glushkov recognizer: it consists of
+     * characters, character classes, concatenations, unions, Kleene stars and pluses, and has at most
+     * {@link #MAX_POSITIONS} positions.
+     */
+    public static boolean fits(Expression expr) {
+        Preconditions.checkNotNull(expr);
+
+        int count = 0;
+        Deque<Expression> todo = new ArrayDeque<>();
+        todo.push(expr);
+        while (!todo.isEmpty()) {
+            Expression e = todo.pop();
+            if (e instanceof Char || e instanceof CharClass) {
+                if (++count > MAX_POSITIONS)
+                    return false;
+            } else if (e instanceof Concat) {
+                todo.push(((Concat) e).getExpr());
+                todo.push(((Concat) e).getExpr2());
+            } else if (e instanceof Or) {
+                todo.push(((Or) e).getExpr());
+                todo.push(((Or) e).getExpr2());
+            } else if (e instanceof KleeneStar)
+                todo.push(((KleeneStar) e).getExpr());
+            else if (e instanceof KleenePlus)
+                todo.push(((KleenePlus) e).getExpr());
+            else
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of positions (characters and character classes) in the expression.
+     */
+    public int getNumberOfPositions() {
+        return nPositions;
+    }
+
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        if (nWords == 1)
+            return recognizeSingleWord(string);
+
+        long[] active = new long[nWords];
+        long[] next = new long[nWords];
+        active[0] = 1L;
+
+        for (int i = 0; i < string.length(); ++i) {
+            int maskOffset = alphabet.classOf(string.charAt(i)) * nWords;
+
+            Arrays.fill(next, 0);
+            for (int chunk = 0; chunk < nChunks; ++chunk) {
+                int v = (int) (active[chunk / 8] >>> (8 * (chunk % 8))) & 0xFF;
+                if (v == 0)
+                    continue;
+
+                int entry = (chunk * CHUNK_VALUES + v) * nWords;
+                for (int w = 0; w < nWords; ++w)
+                    next[w] |= followTable[entry + w];
+            }
+
+            boolean any = false;
+            for (int w = 0; w < nWords; ++w) {
+                next[w] &= masks[maskOffset + w];
+                any |= next[w] != 0;
+            }
+            if (!any)
+                return false;
+
+            long[] tmp = active;
+            active = next;
+            next = tmp;
+        }
+
+        for (int w = 0; w < nWords; ++w)
+            if ((active[w] & acceptMask[w]) != 0)
+                return true;
+
+        return false;
+    }
+
+    private boolean recognizeSingleWord(CharSequence string) {
+        long active = 1L;
+        for (int i = 0; i < string.length(); ++i) {
+            long next = 0;
+            for (int chunk = 0; chunk < nChunks; ++chunk)
+                next |= followTable[chunk * CHUNK_VALUES + (int) ((active >>> (8 * chunk)) & 0xFF)];
+
+            active = next & masks[alphabet.classOf(string.charAt(i))];
+            if (active == 0)
+                return false;
+        }
+
+        return (active & acceptMask[0]) != 0;
+    }
+
+    /**
+     * Number the positions of an expression from left to right and compute their follow sets.
+     * The traversal uses an explicit stack, since long chains of concatenations and unions
+     * are deep.
+     *
+     * @return The first and last positions of the expression, and whether it is nullable.
+     */
+    private static Node positions(Expression expr, List<List<CharRange>> labels, List<BitSet> follow) {
+        Deque<Frame> todo = new ArrayDeque<>();
+        Deque<Node> results = new ArrayDeque<>();
+        todo.push(new Frame(expr));
+
+        while (!todo.isEmpty()) {
+            Frame frame = todo.pop();
+            Expression e = frame.expr;
+
+            if (e instanceof Char || e instanceof CharClass) {
+                int pos = labels.size();
+                labels.add(e instanceof Char ? Collections.singletonList(CharRange.of(((Char) e).getCharacter()))
+                        : ((CharClass) e).getRanges());
+                follow.add(new BitSet());
+
+                Node leaf = new Node(false);
+                leaf.first.set(pos);
+                leaf.last.set(pos);
+                results.push(leaf);
+            } else if (!frame.expanded) {
+                // visit the children first, the left child gets the lower positions.
+                frame.expanded = true;
+                todo.push(frame);
+                if (e instanceof Concat) {
+                    todo.push(new Frame(((Concat) e).getExpr2()));
+                    todo.push(new Frame(((Concat) e).getExpr()));
+                } else if (e instanceof Or) {
+                    todo.push(new Frame(((Or) e).getExpr2()));
+                    todo.push(new Frame(((Or) e).getExpr()));
+                } else if (e instanceof KleeneStar)
+                    todo.push(new Frame(((KleeneStar) e).getExpr()));
+                else
+                    todo.push(new Frame(((KleenePlus) e).getExpr()));
+            } else if (e instanceof Concat) {
+                Node right = results.pop();
+                Node left = results.pop();
+                for (int pos = left.last.nextSetBit(0); pos != -1; pos = left.last.nextSetBit(pos + 1))
+                    follow.get(pos).or(right.first);
+
+                Node node = new Node(left.nullable && right.nullable);
+                node.first.or(left.first);
+                if (left.nullable)
+                    node.first.or(right.first);
+                node.last.or(right.last);
+                if (right.nullable)
+                    node.last.or(left.last);
+                results.push(node);
+            } else if (e instanceof Or) {
+                Node right = results.pop();
+                Node left = results.pop();
+
+                Node node = new Node(left.nullable || right.nullable);
+                node.first.or(left.first);
+                node.first.or(right.first);
+                node.last.or(left.last);
+                node.last.or(right.last);
+                results.push(node);
+            } else {
+                Node inner = results.pop();
+                for (int pos = inner.last.nextSetBit(0); pos != -1; pos = inner.last.nextSetBit(pos + 1))
+                    follow.get(pos).or(inner.first);
+
+                // a star is nullable, a plus only if its operand is.
+                Node node = new Node(e instanceof KleeneStar || inner.nullable);
+                node.first.or(inner.first);
+                node.last.or(inner.last);
+                results.push(node);
+            }
+        }
+
+        return results.pop();
+    }
+
+    /**
+     * The first and last positions of a subexpression.
+     */
+    private static final class Node {
+        Node(boolean nullable) {
+            this.nullable = nullable;
+        }
+
+        private final BitSet first = new BitSet();
+        private final BitSet last = new BitSet();
+        private final boolean nullable;
+    }
+
+    private static final class Frame {
+        Frame(Expression expr) {
+            this.expr = expr;
+        }
+
+        private final Expression expr;
+        private boolean expanded;
+    }
+
+    private static final int CHUNK_VALUES = 256;
+
+    private final int nPositions;
+    private final int nWords;
+    private final int nChunks;
+    private final Alphabet alphabet;
+    private final long[] masks;
+    private final long[] followTable;
+    private final long[] acceptMask;
+}
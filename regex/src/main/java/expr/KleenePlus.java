@@ -0,0 +1,54 @@
+package expr;
+
+import nfa.NFA;
+import nfa.NFABuilder;
+
+/**
+ * Expression that recognizes one or more repetitions of an expression. In contrast to
+ * <i>e(e)*</i>, the repeated expression is compiled once.
+ */
+public final class KleenePlus implements Expression {
+    KleenePlus(Expression expr) {
+        this.expr = expr;
+        hash = 31 * 4 + expr.hashCode();
+    }
+
+    @Override
+    public NFA compile() {
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        return builder.kleenePlus(expr.compile(builder));
+    }
+
+    Expression getExpr() {
+        return expr;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof KleenePlus))
+            return false;
+
+        KleenePlus other = (KleenePlus) o;
+        return hash == other.hash && (expr == other.expr || expr.equals(other.expr));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)*", expr, expr);
+    }
+
+    private final Expression expr;
+    private final int hash;
+}
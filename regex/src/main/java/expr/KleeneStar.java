@@ -1,16 +1,43 @@
 package expr;
 
 import nfa.NFA;
-import nfa.NFAOperations;
+import nfa.NFABuilder;
 
 public final class KleeneStar implements Expression {
     KleeneStar(Expression expr) {
         this.expr = expr;
+        hash = 31 * 3 + expr.hashCode();
     }
 
     @Override
     public NFA compile() {
-        return NFAOperations.kleeneStar(expr.compile());
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        return builder.kleeneStar(expr.compile(builder));
+    }
+
+    Expression getExpr() {
+        return expr;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof KleeneStar))
+            return false;
+
+        KleeneStar other = (KleeneStar) o;
+        return hash == other.hash && (expr == other.expr || expr.equals(other.expr));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     @Override
@@ -19,4 +46,5 @@ public final class KleeneStar implements Expression {
     }
 
     private final Expression expr;
+    private final int hash;
 }
@@ -0,0 +1,109 @@
+package expr;
+
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import dfa.CompiledDFA;
+import dfa.DFAOperations;
+import nfa.NFA;
+import nfa.NFABuilder;
+import nfa.NFAOperations;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A set of patterns that are matched in one pass. The patterns are compiled into the union
+ * of their automata, in which accepting states carry the numbers of the patterns that
+ * match (pattern <i>i</i> is the <i>i</i>-th expression). Determinization and minimization
+ * keep these pattern sets, so the compiled automata report all matching patterns at once.
+ */
+public final class MultiPattern {
+    /**
+     * Compile the patterns.
+     *
+     * @param patterns The patterns, numbered by their position in the list.
+     */
+    public MultiPattern(List<? extends Expression> patterns) {
+        Preconditions.checkNotNull(patterns);
+        Preconditions.checkArgument(!patterns.isEmpty(), "No patterns");
+
+        nPatterns = patterns.size();
+        anchored = DFAOperations.minimize(NFAOperations.determinize(compile(patterns))).compile();
+
+        // the start state of the union has no incoming transitions, so the loop is a .* prefix.
+        NFA nfa = compile(patterns);
+        nfa.getStartState().addTransition(CharRange.ANY, nfa.getStartState());
+        unanchored = DFAOperations.minimize(NFAOperations.determinize(nfa)).compile();
+    }
+
+    /**
+     * Compile patterns into one automaton, in which accepting states carry the numbers of
+     * the patterns that match.
+     *
+     * @param patterns The patterns, numbered by their position in the list.
+     * @return The automaton.
+     */
+    public static NFA compile(List<? extends Expression> patterns) {
+        Preconditions.checkNotNull(patterns);
+        Preconditions.checkArgument(!patterns.isEmpty(), "No patterns");
+
+        NFABuilder builder = new NFABuilder();
+        List<NFABuilder.Fragment> fragments = new ArrayList<>(patterns.size());
+        for (int i = 0; i < patterns.size(); ++i)
+            fragments.add(builder.pattern(patterns.get(i).compile(builder), i));
+
+        return builder.build(builder.union(fragments));
+    }
+
+    /**
+     * Get the number of patterns.
+     */
+    public int size() {
+        return nPatterns;
+    }
+
+    /**
+     * Get the patterns that match the complete string.
+     *
+     * @return The numbers of the matching patterns, in ascending order.
+     */
+    public int[] match(CharSequence string) {
+        return anchored.matchingPatterns(string);
+    }
+
+    /**
+     * Get the patterns that match a substring of the string, in a single pass over the string.
+     *
+     * @return The numbers of the matching patterns, in ascending order.
+     */
+    public int[] find(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        // the accepting states that are visited, the patterns are collected afterwards.
+        BitSet visited = new BitSet(unanchored.getNumberOfStates());
+        int state = unanchored.getStartState();
+        if (unanchored.isAccept(state))
+            visited.set(state);
+
+        for (int i = 0; i < string.length() && state != CompiledDFA.DEAD; ++i) {
+            state = unanchored.step(state, string.charAt(i));
+            if (unanchored.isAccept(state))
+                visited.set(state);
+        }
+
+        BitSet found = new BitSet(nPatterns);
+        for (int s = visited.nextSetBit(0); s != -1; s = visited.nextSetBit(s + 1))
+            for (int pattern : unanchored.getPatterns(s))
+                found.set(pattern);
+
+        int[] patterns = new int[found.cardinality()];
+        for (int i = 0, pattern = found.nextSetBit(0); pattern != -1; pattern = found.nextSetBit(pattern + 1))
+            patterns[i++] = pattern;
+        return patterns;
+    }
+
+    private final int nPatterns;
+    private final CompiledDFA anchored;
+    private final CompiledDFA unanchored;
+}
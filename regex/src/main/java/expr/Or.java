@@ -1,17 +1,70 @@
 package expr;
 
 import nfa.NFA;
-import nfa.NFAOperations;
+import nfa.NFABuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 public final class Or implements Expression {
-    public Or(Expression expr, Expression expr2) {
+    Or(Expression expr, Expression expr2) {
         this.expr = expr;
         this.expr2 = expr2;
+        hash = 31 * (31 * 2 + expr.hashCode()) + expr2.hashCode();
     }
 
     @Override
     public NFA compile() {
-        return NFAOperations.union(expr.compile(), expr2.compile());
+        NFABuilder builder = new NFABuilder();
+        return builder.build(compile(builder));
+    }
+
+    @Override
+    public NFABuilder.Fragment compile(NFABuilder builder) {
+        // Unions of many alternatives, such as word lists, are left-deep chains of Or. Walk
+        // the left spine iteratively, and join all alternatives with one start state rather
+        // than a chain of start states.
+        Deque<Expression> rights = new ArrayDeque<>();
+        Expression left = this;
+        while (left instanceof Or) {
+            rights.push(((Or) left).expr2);
+            left = ((Or) left).expr;
+        }
+
+        List<NFABuilder.Fragment> fragments = new ArrayList<>(rights.size() + 1);
+        fragments.add(left.compile(builder));
+        while (!rights.isEmpty())
+            fragments.add(rights.pop().compile(builder));
+
+        return builder.union(fragments);
+    }
+
+    Expression getExpr() {
+        return expr;
+    }
+
+    Expression getExpr2() {
+        return expr2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Or))
+            return false;
+
+        // the operands of interned expressions are interned, so they are usually identical.
+        Or other = (Or) o;
+        return hash == other.hash && (expr == other.expr || expr.equals(other.expr)) &&
+                (expr2 == other.expr2 || expr2.equals(other.expr2));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     @Override
@@ -21,4 +74,5 @@ public final class Or implements Expression {
 
     private final Expression expr;
     private final Expression expr2;
+    private final int hash;
 }
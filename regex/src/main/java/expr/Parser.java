@@ -0,0 +1,114 @@
+package expr;
+
+/**
+ * Recursive-descent parser for the textual syntax of {@link Expr#parse(String)}:
+ * <pre>
+ *     alternation   := concatenation ('|' concatenation)*
+ *     concatenation := repetition+
+ *     repetition    := atom ('*' | '+')*
+ *     atom          := '(' alternation ')' | '.' | '\' escaped | character
+ * </pre>
+ * A parser is used for one pattern only.
+ */
+final class Parser {
+    Parser(String pattern) {
+        this.pattern = pattern;
+    }
+
+    Expression parse() {
+        Expression expr = alternation();
+        if (pos < pattern.length())
+            throw error("Unbalanced ')'", pos);
+
+        return expr;
+    }
+
+    private Expression alternation() {
+        Expression expr = concatenation();
+        while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+            ++pos;
+            expr = Expr.or(expr, concatenation());
+        }
+
+        return expr;
+    }
+
+    private Expression concatenation() {
+        Expression expr = null;
+        while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+            Expression repetition = repetition();
+            expr = expr == null ? repetition : Expr.concat(expr, repetition);
+        }
+
+        if (expr == null)
+            throw error("Empty expression", pos);
+
+        return expr;
+    }
+
+    private Expression repetition() {
+        Expression expr = atom();
+        while (pos < pattern.length()) {
+            char c = pattern.charAt(pos);
+            if (c == '*')
+                expr = Expr.star(expr);
+            else if (c == '+')
+                expr = Expr.plus(expr);
+            else
+                break;
+
+            ++pos;
+        }
+
+        return expr;
+    }
+
+    private Expression atom() {
+        int start = pos;
+        char c = pattern.charAt(pos++);
+        switch (c) {
+            case '(':
+                Expression expr = alternation();
+                if (pos == pattern.length())
+                    throw error("Missing ')'", start);
+                ++pos;
+                return expr;
+            case '.':
+                return Expr.any();
+            case '*':
+            case '+':
+                throw error("Nothing to repeat", start);
+            case '\\':
+                if (pos == pattern.length())
+                    throw error("Trailing backslash", start);
+                return Expr.ch(escape(pattern.charAt(pos++), start));
+            default:
+                return Expr.ch(c);
+        }
+    }
+
+    private char escape(char c, int start) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                if (METACHARACTERS.indexOf(c) == -1)
+                    throw error("Unknown escape", start);
+                return c;
+        }
+    }
+
+    private IllegalArgumentException error(String message, int position) {
+        return new IllegalArgumentException(String.format("%s at position %d in pattern: %s", message, position,
+                pattern));
+    }
+
+    private static final String METACHARACTERS = "\\|*+().";
+
+    private final String pattern;
+    private int pos;
+}
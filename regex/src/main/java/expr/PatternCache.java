@@ -0,0 +1,212 @@
+package expr;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dfa.CompiledDFA;
+import match.Recognizer;
+import nfa.CompactNFA;
+import nfa.LazyDFA;
+
+/**
+ * Cache of compiled patterns, keyed by the pattern text (see {@link Expr#parse(String)}) or
+ * the expression, and the engine. Expressions are compared structurally, so equal
+ * expressions are compiled once. The cache is bounded by the total weight of the compiled
+ * automata, which is their approximate size in table entries; the least recently used
+ * patterns are evicted first. When several threads miss on the same pattern at the same
+ * time, the pattern is compiled once and the other threads wait for the result.
+ * <p>
+ * Recognizers are shared between the users of the cache, except for {@link Engine#LAZY_DFA}:
+ * a lazy DFA cannot be shared between threads, so the cache holds its NFA and every lookup
+ * returns a new lazy DFA.
+ */
+public final class PatternCache {
+    /**
+     * The default maximum total weight, see {@link #PatternCache(long)}.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+
+    private static final PatternCache SHARED = new PatternCache(DEFAULT_MAX_WEIGHT);
+
+    /**
+     * Construct a cache.
+     *
+     * @param maxWeight The maximum total weight of the cached automata. The weight of a
+     *                  compiled DFA is its number of table entries, the weight of an NFA
+     *                  its number of states and transitions.
+     */
+    public PatternCache(long maxWeight) {
+        Preconditions.checkArgument(maxWeight > 0, "Maximum weight should be positive: %s", maxWeight);
+
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(new Weigher<Key, Entry>() {
+                    @Override
+                    public int weigh(Key key, Entry entry) {
+                        return entry.weight;
+                    }
+                })
+                .recordStats()
+                .build(new CacheLoader<Key, Entry>() {
+                    @Override
+                    public Entry load(Key key) {
+                        return compile(key);
+                    }
+                });
+    }
+
+    /**
+     * Get the process-wide cache, with the default maximum weight.
+     */
+    public static PatternCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the recognizer for a pattern, with the engine that is selected by
+     * {@link Engine#select(Expression)}.
+     *
+     * @throws IllegalArgumentException If the pattern is not valid.
+     */
+    public Recognizer get(String pattern) {
+        return get(pattern, null);
+    }
+
+    /**
+     * Get the recognizer for a pattern, compiled by the given engine.
+     *
+     * @param engine The engine, or {@code null} to select an engine for the pattern.
+     * @throws IllegalArgumentException If the pattern is not valid for the engine.
+     */
+    public Recognizer get(String pattern, Engine engine) {
+        Preconditions.checkNotNull(pattern);
+        return get(new Key(pattern, engine));
+    }
+
+    /**
+     * Get the recognizer for an expression, compiled by the given engine.
+     *
+     * @param engine The engine, or {@code null} to select an engine for the expression.
+     * @throws IllegalArgumentException If the expression is not valid for the engine.
+     */
+    public Recognizer get(Expression expr, Engine engine) {
+        Preconditions.checkNotNull(expr);
+        return get(new Key(expr, engine));
+    }
+
+    /**
+     * Get the hit, miss, load and eviction statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Get the number of cached patterns.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Remove all patterns from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Recognizer get(Key key) {
+        try {
+            return cache.getUnchecked(key).recognizer();
+        } catch (UncheckedExecutionException e) {
+            // rethrow parse and compile errors as they are.
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static Entry compile(Key key) {
+        Expression expr = key.source instanceof Expression ? (Expression) key.source
+                : Expr.parse((String) key.source);
+        Engine engine = key.engine == null ? Engine.select(expr) : key.engine;
+
+        if (engine == Engine.LAZY_DFA) {
+            CompactNFA nfa = (CompactNFA) Engine.NFA_SIMULATION.compile(expr);
+            return new Entry(null, nfa, weight(nfa));
+        }
+
+        Recognizer recognizer = engine.compile(expr);
+        int weight;
+        if (recognizer instanceof CompiledDFA) {
+            CompiledDFA dfa = (CompiledDFA) recognizer;
+            weight = (int) Math.min(Integer.MAX_VALUE, (long) dfa.getNumberOfStates() * dfa.getNumberOfClasses());
+        } else if (recognizer instanceof CompactNFA)
+            weight = weight((CompactNFA) recognizer);
+        else if (recognizer instanceof Glushkov)
+            weight = ((Glushkov) recognizer).getNumberOfPositions();
+        else
+            weight = 1;
+
+        return new Entry(recognizer, null, Math.max(1, weight));
+    }
+
+    private static int weight(CompactNFA nfa) {
+        return nfa.getNumberOfStates() + nfa.getNumberOfTransitions() + nfa.getNumberOfEpsilons();
+    }
+
+    /**
+     * The pattern text or expression, and the engine.
+     */
+    private static final class Key {
+        Key(Object source, Engine engine) {
+            this.source = source;
+            this.engine = engine;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key other = (Key) o;
+            return source.equals(other.source) && engine == other.engine;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(source, engine);
+        }
+
+        private final Object source;
+        private final Engine engine;
+    }
+
+    /**
+     * A compiled pattern: a shareable recognizer, or the NFA of a lazy DFA.
+     */
+    private static final class Entry {
+        Entry(Recognizer recognizer, CompactNFA lazyNFA, int weight) {
+            this.recognizer = recognizer;
+            this.lazyNFA = lazyNFA;
+            this.weight = weight;
+        }
+
+        Recognizer recognizer() {
+            return lazyNFA != null ? new LazyDFA(lazyNFA, LazyDFA.DEFAULT_MAX_STATES) : recognizer;
+        }
+
+        private final Recognizer recognizer;
+        private final CompactNFA lazyNFA;
+        private final int weight;
+    }
+
+    private final LoadingCache<Key, Entry> cache;
+}
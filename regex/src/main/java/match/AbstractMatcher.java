@@ -0,0 +1,64 @@
+package match;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.Buffer;
+import java.nio.CharBuffer;
+
+/**
+ * Base class for matchers. Subclasses only have to consume arrays of characters, buffers
+ * that are not backed by an array are copied through a fixed-size scratch array.
+ */
+public abstract class AbstractMatcher implements Matcher {
+    @Override
+    public final void feed(char[] buf, int off, int len) {
+        Preconditions.checkNotNull(buf);
+        Preconditions.checkPositionIndexes(off, off + len, buf.length);
+        Preconditions.checkState(!finished, "The session has ended");
+
+        if (!isDead())
+            consume(buf, off, len);
+    }
+
+    @Override
+    public final void feed(CharBuffer buf) {
+        Preconditions.checkNotNull(buf);
+        Preconditions.checkState(!finished, "The session has ended");
+
+        if (buf.hasArray()) {
+            if (!isDead())
+                consume(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            // through Buffer, CharBuffer.position(int) only exists since Java 9.
+            ((Buffer) buf).position(buf.limit());
+            return;
+        }
+
+        if (scratch == null)
+            scratch = new char[SCRATCH_SIZE];
+        while (buf.hasRemaining() && !isDead()) {
+            int len = Math.min(buf.remaining(), SCRATCH_SIZE);
+            buf.get(scratch, 0, len);
+            consume(scratch, 0, len);
+        }
+        ((Buffer) buf).position(buf.limit());
+    }
+
+    @Override
+    public final boolean finish() {
+        Preconditions.checkState(!finished, "The session has ended");
+
+        finished = true;
+        return isAcceptingNow();
+    }
+
+    /**
+     * Consume the characters <i>buf[off..off + len - 1]</i>. Consumption can stop early
+     * when the matcher becomes dead.
+     */
+    protected abstract void consume(char[] buf, int off, int len);
+
+    private static final int SCRATCH_SIZE = 4096;
+
+    private boolean finished;
+    private char[] scratch;
+}
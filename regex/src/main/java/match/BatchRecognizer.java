@@ -0,0 +1,125 @@
+package match;
+
+import com.google.common.base.Preconditions;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recognizes batches of strings with one {@link Recognizer}. The result of a batch is a
+ * bitset, in which bit <i>i</i> is set when string <i>i</i> is recognized.
+ * <p>
+ * The parallel variant splits the batch into ranges that are recognized on a fork-join pool,
+ * so the recognizer should be safe to share between threads, such as {@link dfa.CompiledDFA}
+ * or {@link nfa.CompactNFA}. Each task writes to its own words of the result, so the
+ * tasks do not need to synchronize.
+ */
+public final class BatchRecognizer {
+    /**
+     * The number of strings that is recognized by one task.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    public BatchRecognizer(Recognizer recognizer) {
+        this(recognizer, DefaultPool.POOL, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Construct a batch recognizer.
+     *
+     * @param recognizer The automaton that strings are recognized with.
+     * @param pool       The pool that runs the parallel tasks.
+     * @param batchSize  The number of strings below which a range is not split.
+     */
+    public BatchRecognizer(Recognizer recognizer, ForkJoinPool pool, int batchSize) {
+        Preconditions.checkNotNull(recognizer);
+        Preconditions.checkNotNull(pool);
+        Preconditions.checkArgument(batchSize > 0, "Batch size should be positive: %s", batchSize);
+
+        this.recognizer = recognizer;
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Recognize all strings in the current thread.
+     *
+     * @param strings The strings to be recognized.
+     * @return The indices of the recognized strings.
+     */
+    public BitSet recognizeAll(List<? extends CharSequence> strings) {
+        CharSequence[] batch = toArray(strings);
+
+        long[] words = new long[wordIndex(batch.length - 1) + 1];
+        recognizeRange(batch, 0, batch.length, words);
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Recognize all strings, in parallel.
+     *
+     * @param strings The strings to be recognized.
+     * @return The indices of the recognized strings.
+     */
+    public BitSet recognizeAllParallel(List<? extends CharSequence> strings) {
+        CharSequence[] batch = toArray(strings);
+
+        long[] words = new long[wordIndex(batch.length - 1) + 1];
+        pool.invoke(new RecognizeTask(batch, 0, batch.length, words));
+        return BitSet.valueOf(words);
+    }
+
+    private static CharSequence[] toArray(List<? extends CharSequence> strings) {
+        Preconditions.checkNotNull(strings);
+
+        CharSequence[] batch = strings.toArray(new CharSequence[strings.size()]);
+        for (CharSequence string : batch)
+            Preconditions.checkNotNull(string);
+        return batch;
+    }
+
+    private void recognizeRange(CharSequence[] batch, int from, int to, long[] words) {
+        for (int i = from; i < to; ++i)
+            if (recognizer.recognize(batch[i]))
+                words[wordIndex(i)] |= 1L << i;
+    }
+
+    private static int wordIndex(int bit) {
+        return bit >> 6;
+    }
+
+    /**
+     * Recognizes a range of the batch. Ranges are split at multiples of 64, so that no two
+     * tasks write to the same word.
+     */
+    private final class RecognizeTask extends RecursiveAction {
+        RecognizeTask(CharSequence[] batch, int from, int to, long[] words) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.words = words;
+        }
+
+        @Override
+        protected void compute() {
+            int mid = ((from + (to - from) / 2) >>> 6) << 6;
+            if (to - from <= batchSize || mid <= from) {
+                recognizeRange(batch, from, to, words);
+                return;
+            }
+
+            invokeAll(new RecognizeTask(batch, from, mid, words), new RecognizeTask(batch, mid, to, words));
+        }
+
+        private final CharSequence[] batch;
+        private final int from;
+        private final int to;
+        private final long[] words;
+    }
+
+    private final Recognizer recognizer;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+}
@@ -0,0 +1,13 @@
+package match;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The pool that is used by the parallel matchers when no pool is given, created on first use.
+ */
+final class DefaultPool {
+    static final ForkJoinPool POOL = new ForkJoinPool();
+
+    private DefaultPool() {
+    }
+}
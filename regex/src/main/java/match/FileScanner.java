@@ -0,0 +1,314 @@
+package match;
+
+import com.google.common.base.Preconditions;
+import dfa.ByteDFA;
+import dfa.CompiledDFA;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans the lines of a file with a byte automaton. A line matches when the automaton
+ * recognizes the complete line, without its line terminator (<i>\n</i> or <i>\r\n</i>).
+ * <p>
+ * The file is memory-mapped and split at line boundaries into chunks, which are scanned in
+ * parallel on a fork-join pool. The lines are not copied or decoded. A region that cannot be
+ * split, because it is one long line, is mapped in windows of at most the chunk size.
+ * <p>
+ * UTF-8 files are scanned with a {@link ByteDFA} (see {@link dfa.DFA#compileUtf8()}). A
+ * scanner that is constructed from a {@link CompiledDFA} maps every byte to the character
+ * with the same value (ISO-8859-1), so non-ASCII characters in its patterns do not match
+ * UTF-8 files.
+ * <p>
+ * The automata are immutable, so one scanner can be used by several threads.
+ */
+public final class FileScanner {
+    /**
+     * The default size of the chunks that are scanned by one task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Construct a scanner for ISO-8859-1 files.
+     */
+    public FileScanner(CompiledDFA dfa) {
+        this(dfa, DefaultPool.POOL, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Construct a scanner for ISO-8859-1 files.
+     *
+     * @param dfa       The automaton that lines are matched against.
+     * @param pool      The pool that runs the scanning tasks.
+     * @param chunkSize The size above which a region of the file is split.
+     */
+    public FileScanner(CompiledDFA dfa, ForkJoinPool pool, int chunkSize) {
+        this(ByteDFA.latin1(dfa), pool, chunkSize);
+    }
+
+    /**
+     * Construct a scanner for UTF-8 files.
+     */
+    public FileScanner(ByteDFA dfa) {
+        this(dfa, DefaultPool.POOL, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Construct a scanner for UTF-8 files.
+     *
+     * @param dfa       The automaton that lines are matched against.
+     * @param pool      The pool that runs the scanning tasks.
+     * @param chunkSize The size above which a region of the file is split.
+     */
+    public FileScanner(ByteDFA dfa, ForkJoinPool pool, int chunkSize) {
+        Preconditions.checkNotNull(dfa);
+        Preconditions.checkNotNull(pool);
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size should be positive: %s", chunkSize);
+
+        this.dfa = dfa;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Count the lines of a file that match.
+     */
+    public long count(Path path) throws IOException {
+        return scan(path, false).count;
+    }
+
+    /**
+     * Get the offsets of the lines of a file that match.
+     *
+     * @return The byte offsets of the first characters of the matching lines, in ascending order.
+     */
+    public long[] matchingLines(Path path) throws IOException {
+        Lines lines = scan(path, true);
+        return Arrays.copyOf(lines.offsets, (int) lines.count);
+    }
+
+    private Lines scan(Path path, boolean collect) throws IOException {
+        Preconditions.checkNotNull(path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return pool.invoke(new ScanTask(channel, 0, channel.size(), collect));
+        } catch (ScanException e) {
+            // the pool can rethrow a copy of the exception, with the original as its cause.
+            for (Throwable t = e; t != null; t = t.getCause())
+                if (t instanceof IOException)
+                    throw (IOException) t;
+            throw e;
+        }
+    }
+
+    /**
+     * Scan the lines in <i>[start, end)</i>, which should start at the beginning of a line and
+     * end at the end of a line. The region is mapped in windows of at most the chunk size, and
+     * the state of the automaton is carried across windows.
+     */
+    private void scanRegion(FileChannel channel, long start, long end, Lines lines) throws IOException {
+        LineScanner scanner = new LineScanner(start, lines);
+        for (long offset = start; offset < end; offset += chunkSize) {
+            long size = Math.min(chunkSize, end - offset);
+            scanner.scan(channel.map(FileChannel.MapMode.READ_ONLY, offset, size), offset);
+        }
+        scanner.finish(end);
+    }
+
+    /**
+     * Find the offset after the first line terminator at or after <i>pos</i>, or the end of
+     * the region if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long pos, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(LINE_SEARCH_BLOCK_SIZE);
+        while (pos < end) {
+            // through Buffer, ByteBuffer.clear() and limit(int) only exist since Java 9.
+            ((Buffer) block).clear();
+            ((Buffer) block).limit((int) Math.min(block.capacity(), end - pos));
+            int n = channel.read(block, pos);
+            if (n <= 0)
+                break;
+
+            for (int i = 0; i < n; ++i)
+                if (block.get(i) == '\n')
+                    return pos + i + 1;
+
+            pos += n;
+        }
+
+        return end;
+    }
+
+    /**
+     * Find the offset after the last line terminator before <i>pos</i>, or <i>start</i> if
+     * there is none.
+     */
+    private static long previousLineStart(FileChannel channel, long start, long pos) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(LINE_SEARCH_BLOCK_SIZE);
+        while (pos > start) {
+            int size = (int) Math.min(block.capacity(), pos - start);
+            long blockStart = pos - size;
+            ((Buffer) block).clear();
+            ((Buffer) block).limit(size);
+            while (block.hasRemaining())
+                if (channel.read(block, blockStart + block.position()) <= 0)
+                    return start;
+
+            for (int i = size - 1; i >= 0; --i)
+                if (block.get(i) == '\n')
+                    return blockStart + i + 1;
+
+            pos = blockStart;
+        }
+
+        return start;
+    }
+
+    /**
+     * Scans a region of the file, which is split in two at a line boundary if it is larger
+     * than the chunk size.
+     */
+    private final class ScanTask extends RecursiveTask<Lines> {
+        ScanTask(FileChannel channel, long start, long end, boolean collect) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.collect = collect;
+        }
+
+        @Override
+        protected Lines compute() {
+            try {
+                if (end - start > chunkSize) {
+                    long mid = start + (end - start) / 2;
+                    long split = nextLineStart(channel, mid, end);
+                    if (split == end)
+                        split = previousLineStart(channel, start, mid);
+                    if (split > start && split < end) {
+                        ScanTask right = new ScanTask(channel, split, end, collect);
+                        right.fork();
+                        Lines lines = new ScanTask(channel, start, split, collect).compute();
+                        return lines.append(right.join());
+                    }
+                }
+
+                Lines lines = new Lines(collect);
+                scanRegion(channel, start, end, lines);
+                return lines;
+            } catch (IOException e) {
+                throw new ScanException(e);
+            }
+        }
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean collect;
+    }
+
+    /**
+     * Runs the automaton over the lines of consecutive buffers, and adds the lines that match.
+     */
+    private final class LineScanner {
+        LineScanner(long start, Lines lines) {
+            this.lines = lines;
+            lineStart = start;
+            state = dfa.getStartState();
+            stateBeforeCR = ByteDFA.DEAD;
+        }
+
+        /**
+         * Scan <i>buf[0..buf.limit() - 1]</i>, which starts at <i>offset</i> in the file.
+         */
+        void scan(ByteBuffer buf, long offset) {
+            int len = buf.limit();
+            for (int i = 0; i < len; ++i) {
+                byte b = buf.get(i);
+                if (b == '\n') {
+                    if (dfa.isAccept(lastWasCR ? stateBeforeCR : state))
+                        lines.add(lineStart);
+
+                    lineStart = offset + i + 1;
+                    state = dfa.getStartState();
+                    lastWasCR = false;
+                    continue;
+                }
+
+                lastWasCR = b == '\r';
+                stateBeforeCR = state;
+                if (state != ByteDFA.DEAD)
+                    state = dfa.step(state, b);
+            }
+        }
+
+        /**
+         * Finish a region that ends at <i>end</i>. The last line of the file does not need a
+         * line terminator.
+         */
+        void finish(long end) {
+            if (lineStart < end && dfa.isAccept(state))
+                lines.add(lineStart);
+        }
+
+        private final Lines lines;
+        private long lineStart;
+        private int state;
+        private int stateBeforeCR;
+        private boolean lastWasCR;
+    }
+
+    /**
+     * The number of matching lines and, when collecting, their offsets.
+     */
+    private static final class Lines {
+        Lines(boolean collect) {
+            offsets = collect ? new long[16] : null;
+        }
+
+        void add(long offset) {
+            if (offsets != null) {
+                if (count == offsets.length)
+                    offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+                offsets[(int) count] = offset;
+            }
+            ++count;
+        }
+
+        /**
+         * Append the lines of a region that follows this region.
+         */
+        Lines append(Lines other) {
+            if (offsets != null) {
+                offsets = Arrays.copyOf(offsets, (int) (count + other.count) + 1);
+                System.arraycopy(other.offsets, 0, offsets, (int) count, (int) other.count);
+            }
+            count += other.count;
+            return this;
+        }
+
+        private long count;
+        private long[] offsets;
+    }
+
+    /**
+     * Unchecked wrapper for I/O errors in scanning tasks.
+     */
+    private static final class ScanException extends RuntimeException {
+        ScanException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static final int LINE_SEARCH_BLOCK_SIZE = 4096;
+
+    private final ByteDFA dfa;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+}
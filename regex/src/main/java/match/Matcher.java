@@ -0,0 +1,42 @@
+package match;
+
+import java.nio.CharBuffer;
+
+/**
+ * Push-style recognition session. The input is fed to the matcher in chunks, and only the
+ * current state of the automaton is kept between chunks, so the memory use does not depend
+ * on the length of the input. Once the automaton cannot reach an accepting state anymore,
+ * the matcher is dead and further input is skipped.
+ * <p>
+ * A matcher is a single session and should not be shared between threads.
+ */
+public interface Matcher {
+    /**
+     * Feed the characters <i>buf[off..off + len - 1]</i> to the matcher.
+     */
+    void feed(char[] buf, int off, int len);
+
+    /**
+     * Feed the remaining characters of a buffer to the matcher. The buffer's position is
+     * set to its limit.
+     */
+    void feed(CharBuffer buf);
+
+    /**
+     * Check whether the input that was fed so far is recognized.
+     */
+    boolean isAcceptingNow();
+
+    /**
+     * Check whether the automaton is dead: no continuation of the input that was fed so
+     * far can be recognized.
+     */
+    boolean isDead();
+
+    /**
+     * End the session. No input can be fed after the session has ended.
+     *
+     * @return {@code true} if the input was recognized, {@code false} otherwise.
+     */
+    boolean finish();
+}
@@ -0,0 +1,15 @@
+package match;
+
+/**
+ * An automaton that can recognize strings. Implementations that are immutable, such as
+ * {@link dfa.CompiledDFA} and {@link nfa.CompactNFA}, can be shared between threads.
+ */
+public interface Recognizer {
+    /**
+     * RECOGNIZE if a string is valid according to the automaton.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    boolean recognize(CharSequence string);
+}
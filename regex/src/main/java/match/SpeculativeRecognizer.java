@@ -0,0 +1,218 @@
+package match;
+
+import com.google.common.base.Preconditions;
+import dfa.CompiledDFA;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Recognizes long inputs by running a {@link CompiledDFA} on several segments of the input
+ * in parallel. Since the state at the start of a segment is not known in advance, every
+ * segment (but the first) is run speculatively from all states, giving a mapping from the
+ * state at the start of the segment to the state at its end. The mappings are then composed
+ * from left to right.
+ * <p>
+ * Running from all states does not multiply the work by the number of states: runs that
+ * reach the same state continue as one run, and runs that die are dropped. In most automata,
+ * the runs converge to a few states after a couple of characters.
+ * <p>
+ * Speculation only pays off when the input is long and the automaton is small, otherwise
+ * the input is recognized sequentially.
+ */
+public final class SpeculativeRecognizer implements Recognizer {
+    /**
+     * The default minimum input length for speculative execution.
+     */
+    public static final int DEFAULT_MIN_PARALLEL_LENGTH = 1 << 20;
+
+    /**
+     * The maximum number of states of an automaton for speculative execution.
+     */
+    public static final int MAX_SPECULATIVE_STATES = 1024;
+
+    public SpeculativeRecognizer(CompiledDFA dfa) {
+        this(dfa, DefaultPool.POOL, DEFAULT_MIN_PARALLEL_LENGTH);
+    }
+
+    /**
+     * Construct a recognizer.
+     *
+     * @param dfa               The automaton.
+     * @param pool              The pool that runs the segments.
+     * @param minParallelLength The minimum input length for speculative execution, this is
+     *                          also the minimum segment length.
+     */
+    public SpeculativeRecognizer(CompiledDFA dfa, ForkJoinPool pool, int minParallelLength) {
+        Preconditions.checkNotNull(dfa);
+        Preconditions.checkNotNull(pool);
+        Preconditions.checkArgument(minParallelLength > 0, "Minimum length should be positive: %s",
+                minParallelLength);
+
+        this.dfa = dfa;
+        this.pool = pool;
+        this.minParallelLength = minParallelLength;
+    }
+
+    /**
+     * Check whether an input of the given length would be recognized speculatively.
+     */
+    public boolean isSpeculative(int length) {
+        return pool.getParallelism() > 1 && length / 2 >= minParallelLength &&
+                dfa.getNumberOfStates() <= MAX_SPECULATIVE_STATES;
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to the DFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        if (!isSpeculative(string.length()))
+            return dfa.isAccept(run(dfa, string, 0, string.length(), dfa.getStartState()));
+
+        int nSegments = Math.min(SEGMENTS_PER_THREAD * pool.getParallelism(), string.length() / minParallelLength);
+        return dfa.isAccept(pool.invoke(new RecognizeTask(string, nSegments)));
+    }
+
+    /**
+     * Run the automaton on <i>string[from..to - 1]</i>, starting in the given state.
+     */
+    private static int run(CompiledDFA dfa, CharSequence string, int from, int to, int state) {
+        for (int i = from; i < to && state != CompiledDFA.DEAD; ++i)
+            state = dfa.step(state, string.charAt(i));
+
+        return state;
+    }
+
+    /**
+     * Run the automaton on <i>string[from..to - 1]</i> from every state.
+     *
+     * @return The state that is reached from each state, {@link CompiledDFA#DEAD} for
+     * states from which the automaton dies.
+     */
+    private static int[] runAll(CompiledDFA dfa, CharSequence string, int from, int to) {
+        int n = dfa.getNumberOfStates();
+
+        // the distinct current states of the runs, run i is in state live[owner[i]].
+        int[] live = new int[n];
+        int[] owner = new int[n];
+        for (int state = 0; state < n; ++state) {
+            live[state] = state;
+            owner[state] = state;
+        }
+        int nLive = n;
+
+        int[] next = new int[n];
+        int[] redirect = new int[n];
+        int[] seen = new int[n]; // seen[state] == pos + 1 if state was reached at pos
+        int[] seenIdx = new int[n];
+
+        int pos = from;
+        for (; pos < to && nLive > 1; ++pos) {
+            char c = string.charAt(pos);
+
+            int nNext = 0;
+            for (int j = 0; j < nLive; ++j) {
+                int target = dfa.step(live[j], c);
+                if (target == CompiledDFA.DEAD) {
+                    redirect[j] = -1;
+                    continue;
+                }
+
+                if (seen[target] != pos + 1) {
+                    seen[target] = pos + 1;
+                    seenIdx[target] = nNext;
+                    next[nNext++] = target;
+                }
+                redirect[j] = seenIdx[target];
+            }
+
+            // runs only change their index when runs merged or died.
+            if (nNext != nLive)
+                for (int state = 0; state < n; ++state)
+                    if (owner[state] != -1)
+                        owner[state] = redirect[owner[state]];
+
+            int[] tmp = live;
+            live = next;
+            next = tmp;
+            nLive = nNext;
+        }
+
+        // all runs merged, the rest of the segment is a single run.
+        if (nLive == 1)
+            live[0] = run(dfa, string, pos, to, live[0]);
+
+        int[] mapping = new int[n];
+        for (int state = 0; state < n; ++state)
+            mapping[state] = owner[state] == -1 || nLive == 0 ? CompiledDFA.DEAD : live[owner[state]];
+
+        return mapping;
+    }
+
+    /**
+     * Runs the first segment from the start state and the other segments from all states,
+     * then composes the results.
+     */
+    private final class RecognizeTask extends RecursiveTask<Integer> {
+        RecognizeTask(CharSequence string, int nSegments) {
+            this.string = string;
+            this.nSegments = nSegments;
+        }
+
+        @Override
+        protected Integer compute() {
+            List<SegmentTask> segments = new ArrayList<>(nSegments - 1);
+            for (int i = 1; i < nSegments; ++i)
+                segments.add(new SegmentTask(string, bound(i), bound(i + 1)));
+            for (SegmentTask segment : segments)
+                segment.fork();
+
+            int state = run(dfa, string, 0, bound(1), dfa.getStartState());
+            for (SegmentTask segment : segments) {
+                int[] mapping = segment.join();
+                if (state != CompiledDFA.DEAD)
+                    state = mapping[state];
+            }
+
+            return state;
+        }
+
+        private int bound(int segment) {
+            return (int) ((long) string.length() * segment / nSegments);
+        }
+
+        private final CharSequence string;
+        private final int nSegments;
+    }
+
+    private final class SegmentTask extends RecursiveTask<int[]> {
+        SegmentTask(CharSequence string, int from, int to) {
+            this.string = string;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            return runAll(dfa, string, from, to);
+        }
+
+        private final CharSequence string;
+        private final int from;
+        private final int to;
+    }
+
+    private static final int SEGMENTS_PER_THREAD = 2;
+
+    private final CompiledDFA dfa;
+    private final ForkJoinPool pool;
+    private final int minParallelLength;
+}
@@ -0,0 +1,368 @@
+package nfa;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+import match.Matcher;
+import match.Recognizer;
+
+import java.util.*;
+
+/**
+ * Immutable, integer-indexed representation of a non-deterministic finite-state automaton.
+ * States are numbered <i>0..n-1</i>, where the start state is 0. The transitions are stored
+ * in compressed sparse row format: the transitions of state <i>s</i> have the indices
+ * <i>offsets[s]..offsets[s + 1]</i> in the <i>los</i>, <i>his</i> and <i>targets</i> arrays,
+ * sorted by label and then by target. A transition is labelled with the character range
+ * <i>[los[i], his[i]]</i>. Accepting states are stored in a bitset, the patterns of accepting
+ * states (see {@link NFAState#addPattern(int)}) in the same format as the transitions.
+ * <p>
+ * Epsilon transitions are stored in the same format as well. The simulators and the subset
+ * construction only work on closed sets of states: whenever a state is added to a set, its
+ * epsilon closure (the states that are reachable through epsilon transitions, including the
+ * state itself) is added as well. Closures are expanded when they are needed rather than
+ * stored, since the closures of all states can be quadratic in the size of the automaton,
+ * for instance in chains of stars. A set of states accepts when one of its states is accepting.
+ * <p>
+ * In contrast to {@link NFA}, there is no object per state or transition, so large automata
+ * use a fraction of the memory. Since the automaton cannot be modified, it can be shared
+ * between threads.
+ */
+public final class CompactNFA implements Recognizer {
+    /**
+     * Construct a compact automaton from an {@link NFA}. The states are numbered
+     * breadth-first, changes to the {@link NFA} are not reflected in the compact automaton.
+     *
+     * @param nfa The automaton.
+     */
+    public CompactNFA(NFA nfa) {
+        Preconditions.checkNotNull(nfa);
+
+        Map<NFAState, Integer> stateNumbers = nfa.numberStates();
+        NFAState[] states = new NFAState[stateNumbers.size()];
+        for (Map.Entry<NFAState, Integer> numberedState : stateNumbers.entrySet())
+            states[numberedState.getValue()] = numberedState.getKey();
+
+        nStates = states.length;
+        accept = new BitSet(nStates);
+        offsets = new int[nStates + 1];
+
+        int nTransitions = 0;
+        for (NFAState state : states)
+            nTransitions += state.getTransitions().size();
+
+        los = new char[nTransitions];
+        his = new char[nTransitions];
+        targets = new int[nTransitions];
+
+        int nPatterns = 0;
+        for (NFAState state : states)
+            if (state.isAccept())
+                nPatterns += state.getPatterns().size();
+
+        patternOffsets = new int[nStates + 1];
+        patterns = new int[nPatterns];
+
+        int idx = 0;
+        int patternIdx = 0;
+        for (int stateNumber = 0; stateNumber < nStates; ++stateNumber) {
+            NFAState s = states[stateNumber];
+            if (s.isAccept())
+                accept.set(stateNumber);
+
+            patternOffsets[stateNumber] = patternIdx;
+            if (s.isAccept())
+                for (int pattern : s.getPatterns())
+                    patterns[patternIdx++] = pattern;
+
+            offsets[stateNumber] = idx;
+
+            // Pack (label, target) in a long, so that sorting gives the label-target order.
+            long[] packed = new long[s.getTransitions().size()];
+            int i = 0;
+            for (Map.Entry<CharRange, NFAState> trans : s.getTransitions().entries())
+                packed[i++] = pack(trans.getKey().getLo(), trans.getKey().getHi(),
+                        stateNumbers.get(trans.getValue()));
+            Arrays.sort(packed);
+
+            for (long trans : packed)
+                unpack(trans, idx++);
+        }
+        offsets[nStates] = idx;
+        patternOffsets[nStates] = patternIdx;
+
+        epsOffsets = new int[nStates + 1];
+        int nEpsilons = 0;
+        for (NFAState state : states)
+            nEpsilons += state.getEpsilons().size();
+        epsTargets = new int[nEpsilons];
+
+        int epsIdx = 0;
+        for (int stateNumber = 0; stateNumber < nStates; ++stateNumber) {
+            epsOffsets[stateNumber] = epsIdx;
+            for (NFAState to : states[stateNumber].getEpsilons())
+                epsTargets[epsIdx++] = stateNumbers.get(to);
+        }
+        epsOffsets[nStates] = epsIdx;
+    }
+
+    /**
+     * Construct a compact automaton from a list of transitions. Transition <i>i</i> goes
+     * from <i>sources[i]</i> to <i>edgeTargets[i]</i> with label <i>[edgeLos[i], edgeHis[i]]</i>,
+     * epsilon transition <i>i</i> goes from <i>epsSources[i]</i> to <i>epsEdgeTargets[i]</i>.
+     * The states do not have patterns.
+     *
+     * @param nStates The number of states.
+     * @param accept  The accepting states.
+     */
+    CompactNFA(int nStates, int[] sources, char[] edgeLos, char[] edgeHis, int[] edgeTargets,
+               int[] epsSources, int[] epsEdgeTargets, BitSet accept) {
+        this.nStates = nStates;
+        this.accept = (BitSet) accept.clone();
+        patternOffsets = new int[nStates + 1];
+        patterns = new int[0];
+
+        offsets = new int[nStates + 1];
+        for (int source : sources)
+            ++offsets[source + 1];
+        for (int state = 0; state < nStates; ++state)
+            offsets[state + 1] += offsets[state];
+
+        long[] packed = new long[sources.length];
+        int[] fill = Arrays.copyOf(offsets, nStates);
+        for (int i = 0; i < sources.length; ++i)
+            packed[fill[sources[i]]++] = pack(edgeLos[i], edgeHis[i], edgeTargets[i]);
+
+        los = new char[packed.length];
+        his = new char[packed.length];
+        targets = new int[packed.length];
+        for (int state = 0; state < nStates; ++state) {
+            Arrays.sort(packed, offsets[state], offsets[state + 1]);
+            for (int trans = offsets[state]; trans < offsets[state + 1]; ++trans)
+                unpack(packed[trans], trans);
+        }
+
+        epsOffsets = new int[nStates + 1];
+        for (int source : epsSources)
+            ++epsOffsets[source + 1];
+        for (int state = 0; state < nStates; ++state)
+            epsOffsets[state + 1] += epsOffsets[state];
+
+        epsTargets = new int[epsSources.length];
+        int[] epsFill = Arrays.copyOf(epsOffsets, nStates);
+        for (int i = 0; i < epsSources.length; ++i)
+            epsTargets[epsFill[epsSources[i]]++] = epsEdgeTargets[i];
+    }
+
+    /**
+     * Get the number of the start state.
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    public int getNumberOfStates() {
+        return nStates;
+    }
+
+    public int getNumberOfTransitions() {
+        return los.length;
+    }
+
+    public int getNumberOfEpsilons() {
+        return epsTargets.length;
+    }
+
+    /**
+     * Get the epsilon closure of a state: the states that are reachable through epsilon
+     * transitions, including the state itself.
+     *
+     * @return The states, in ascending order.
+     */
+    public int[] getClosure(int state) {
+        SparseSet set = new SparseSet(nStates);
+        addClosure(state, set);
+
+        int[] closure = new int[set.size()];
+        for (int i = 0; i < closure.length; ++i)
+            closure[i] = set.get(i);
+        Arrays.sort(closure);
+
+        return closure;
+    }
+
+    /**
+     * Check whether a state is accepting itself, see {@link NFAState#isAccept()}.
+     */
+    public boolean isAccept(int state) {
+        return accept.get(state);
+    }
+
+    /**
+     * Get the patterns of a state, see {@link NFAState#addPattern(int)}.
+     *
+     * @return The patterns, in ascending order.
+     */
+    public int[] getPatterns(int state) {
+        return Arrays.copyOfRange(patterns, patternOffsets[state], patternOffsets[state + 1]);
+    }
+
+    /**
+     * Get the labels of all transitions.
+     */
+    public List<CharRange> getLabels() {
+        List<CharRange> labels = new ArrayList<>(los.length);
+        for (int trans = 0; trans < los.length; ++trans)
+            labels.add(CharRange.of(los[trans], his[trans]));
+
+        return labels;
+    }
+
+    /**
+     * Compute the character classes of the automaton: characters that occur on exactly the
+     * same transitions are in the same class.
+     *
+     * @return The partition of the characters into classes.
+     */
+    public Alphabet getAlphabet() {
+        return Alphabet.of(getLabels());
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to this automaton, using {@link NFASimulator}.
+     * Every call allocates a new simulator; to recognize many strings, reuse a simulator.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return new NFASimulator(this).recognize(string);
+    }
+
+    /**
+     * Start a streaming recognition session, that simulates the automaton.
+     */
+    public Matcher matcher() {
+        return new NFAMatcher(this);
+    }
+
+    /**
+     * Convert the automaton to an {@link NFA}.
+     */
+    public NFA toNFA() {
+        NFAState[] states = new NFAState[nStates];
+        for (int state = 0; state < nStates; ++state)
+            states[state] = new NFAState(accept.get(state));
+        for (int state = 0; state < nStates; ++state)
+            for (int i = patternOffsets[state]; i < patternOffsets[state + 1]; ++i)
+                states[state].addPattern(patterns[i]);
+
+        for (int state = 0; state < nStates; ++state)
+            for (int trans = offsets[state]; trans < offsets[state + 1]; ++trans)
+                states[state].addTransition(CharRange.of(los[trans], his[trans]), states[targets[trans]]);
+        for (int state = 0; state < nStates; ++state)
+            for (int eps = epsOffsets[state]; eps < epsOffsets[state + 1]; ++eps)
+                states[state].addEpsilon(states[epsTargets[eps]]);
+
+        return new NFA(states[0]);
+    }
+
+    /**
+     * Output the automaton in Graphviz dot format.
+     */
+    public String toDot() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("digraph G {\nrankdir=LR;\n");
+
+        for (int state = 0; state < nStates; ++state) {
+            if (accept.get(state))
+                stringBuilder.append(String.format("%d [peripheries=2];\n", state));
+
+            for (int trans = offsets[state]; trans < offsets[state + 1]; ++trans)
+                stringBuilder.append(String.format("%d -> %d [label=\"%s\"];\n", state,
+                        targets[trans], CharRange.of(los[trans], his[trans])));
+            for (int eps = epsOffsets[state]; eps < epsOffsets[state + 1]; ++eps)
+                stringBuilder.append(String.format("%d -> %d [label=\"%s\"];\n", state,
+                        epsTargets[eps], NFA.EPSILON));
+        }
+
+        stringBuilder.append("}");
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Add the epsilon closure of a state to a set. Since the set only contains closed
+     * states, nothing needs to be added when the state is in the set already, and the search
+     * stops at states that are in the set. The states that are added are appended to the set
+     * in insertion order, so the set itself is the queue of the breadth-first search.
+     */
+    void addClosure(int state, SparseSet set) {
+        if (!set.add(state))
+            return;
+
+        for (int i = set.size() - 1; i < set.size(); ++i) {
+            int from = set.get(i);
+            for (int eps = epsOffsets[from]; eps < epsOffsets[from + 1]; ++eps)
+                set.add(epsTargets[eps]);
+        }
+    }
+
+    /**
+     * Get the end of the transitions of a state that could match the given character,
+     * namely the transitions in <i>offsets[state]..end</i> that start at or before the character.
+     * Transitions in this span match when <i>his[i] &gt;= c</i>.
+     */
+    int matchEnd(int state, char c) {
+        int lo = offsets[state];
+        int hi = offsets[state + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (los[mid] <= c)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    /**
+     * Pack a transition in a long, such that the natural order of packed transitions
+     * is by label and then by target. The sign bit is flipped, so that the signed order
+     * of the longs corresponds to the unsigned order of the fields.
+     */
+    static long pack(char lo, char hi, int target) {
+        return (((long) lo << 48) | ((long) hi << 32) | target) ^ Long.MIN_VALUE;
+    }
+
+    static char lo(long trans) {
+        return (char) ((trans ^ Long.MIN_VALUE) >>> 48);
+    }
+
+    static char hi(long trans) {
+        return (char) (trans >>> 32);
+    }
+
+    static int target(long trans) {
+        return (int) trans;
+    }
+
+    private void unpack(long trans, int idx) {
+        los[idx] = lo(trans);
+        his[idx] = hi(trans);
+        targets[idx] = target(trans);
+    }
+
+    final int nStates;
+    final int[] offsets;
+    final char[] los;
+    final char[] his;
+    final int[] targets;
+    final BitSet accept;
+    final int[] patternOffsets;
+    final int[] patterns;
+    final int[] epsOffsets;
+    final int[] epsTargets;
+}
@@ -0,0 +1,259 @@
+package nfa;
+
+import alphabet.Alphabet;
+import com.google.common.base.Preconditions;
+import match.Recognizer;
+
+import java.util.*;
+
+/**
+ * A lazily determinized {@link NFA}. Rather than constructing the complete subset
+ * construction up front, DFA states are constructed when the input reaches them. The
+ * constructed states are kept in a cache that holds at most a fixed number of states.
+ * When the cache is full, it is cleared and states are constructed again on demand.
+ * <p>
+ * When the cache thrashes (it has to be cleared while few characters were processed per
+ * constructed state since it was last cleared, counted over all inputs), the remainder of
+ * the input is recognized using {@link NFASimulator}, since constructing DFA states would
+ * be more expensive than simulating the NFA.
+ * <p>
+ * The cache is not thread-safe, so a lazy DFA should not be shared between threads.
+ */
+public final class LazyDFA implements Recognizer {
+    /**
+     * Default maximum number of cached states.
+     */
+    public static final int DEFAULT_MAX_STATES = 10000;
+
+    /**
+     * After the cache was cleared, the number of characters that should be processed
+     * per cached state before clearing the cache again. If fewer characters were processed,
+     * we fall back to NFA simulation.
+     */
+    private static final int MIN_CHARS_PER_STATE = 10;
+
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Construct a lazy DFA.
+     *
+     * @param nfa       The automaton to determinize.
+     * @param maxStates The maximum number of DFA states in the cache.
+     */
+    public LazyDFA(NFA nfa, int maxStates) {
+        this(new CompactNFA(Preconditions.checkNotNull(nfa)), maxStates);
+    }
+
+    /**
+     * Construct a lazy DFA.
+     *
+     * @param nfa       The automaton to determinize.
+     * @param maxStates The maximum number of DFA states in the cache.
+     */
+    public LazyDFA(CompactNFA nfa, int maxStates) {
+        Preconditions.checkNotNull(nfa);
+        Preconditions.checkArgument(maxStates > 0, "The cache should hold at least one state");
+
+        this.nfa = nfa;
+        this.maxStates = maxStates;
+        this.simulator = new NFASimulator(this.nfa);
+        this.scratch = new SparseSet(this.nfa.nStates);
+        this.successors = new SparseSet(this.nfa.nStates);
+
+        // DFA states have one transition per character class.
+        alphabet = nfa.getAlphabet();
+
+        cache = new HashMap<>();
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to the NFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+
+        // the number of characters that were processed before this input.
+        long offset = processed;
+        processed += string.length();
+
+        LazyState state = startState(offset);
+        for (int index = 0; index < string.length(); ++index) {
+            char c = string.charAt(index);
+            int cls = alphabet.classOf(c);
+            LazyState next = state.next[cls];
+            if (next == null) {
+                ++misses;
+
+                StateSet nextSet = successor(state, cls);
+                if (nextSet == null)
+                    next = dead;
+                else {
+                    next = cache.get(nextSet);
+                    if (next == null) {
+                        // the current state can be flushed, it is only needed to recognize the
+                        // remainder of the input.
+                        if (cache.size() >= maxStates) {
+                            if (isThrashing(offset + index)) {
+                                ++fallbacks;
+                                return simulator.recognize(string, index, state.stateSet.getStates());
+                            }
+
+                            flush(offset + index);
+                        }
+
+                        next = newState(nextSet);
+                    }
+                }
+
+                state.next[cls] = next;
+            } else
+                ++hits;
+
+            if (next == dead)
+                return false;
+
+            state = next;
+        }
+
+        return state.accept;
+    }
+
+    /**
+     * Get the number of transitions that were found in the cache.
+     */
+    public long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of transitions that had to be computed, because they were not in the cache.
+     */
+    public long getCacheMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of times that the cache was cleared because it was full.
+     */
+    public long getCacheFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Get the number of times that recognition fell back to NFA simulation, because
+     * the cache was thrashing.
+     */
+    public long getNFAFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * Get the number of DFA states that are currently in the cache.
+     */
+    public int getCachedStates() {
+        return cache.size();
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * Check whether the cache was cleared recently, see {@link #MIN_CHARS_PER_STATE}.
+     *
+     * @param position The number of characters that were processed, over all inputs.
+     */
+    private boolean isThrashing(long position) {
+        return lastFlush != -1 && position - lastFlush < (long) MIN_CHARS_PER_STATE * maxStates;
+    }
+
+    private void flush(long position) {
+        ++flushes;
+        lastFlush = position;
+        cache.clear();
+        start = null;
+    }
+
+    private LazyState startState(long position) {
+        if (start == null) {
+            StateSet startSet = new StateSet(nfa.getClosure(0));
+            LazyState state = cache.get(startSet);
+            if (state == null) {
+                if (cache.size() >= maxStates)
+                    flush(position);
+                state = newState(startSet);
+            }
+            start = state;
+        }
+
+        return start;
+    }
+
+    /**
+     * Add a state to the cache, which should not be full.
+     */
+    private LazyState newState(StateSet stateSet) {
+        boolean accept = false;
+        for (int s : stateSet.getStates())
+            accept |= nfa.accept.get(s);
+
+        LazyState state = new LazyState(stateSet, accept, alphabet.getNumberOfClasses());
+        cache.put(stateSet, state);
+        return state;
+    }
+
+    /**
+     * Compute the set of NFA states of the successor of a DFA state for a character class.
+     *
+     * @return The set, or <tt>null</tt> if the successor is the dead state.
+     */
+    private StateSet successor(LazyState state, int cls) {
+        scratch.clear();
+        for (int s : state.stateSet.getStates())
+            scratch.add(s);
+
+        successors.clear();
+        NFASimulator.step(nfa, scratch, alphabet.representative(cls), successors);
+        if (successors.isEmpty())
+            return null;
+
+        return StateSet.of(successors);
+    }
+
+    /**
+     * A DFA state, the set of NFA states that it represents and its (cached) transitions.
+     */
+    private static class LazyState {
+        private final StateSet stateSet;
+        private final boolean accept;
+        private final LazyState[] next;
+
+        LazyState(StateSet stateSet, boolean accept, int nClasses) {
+            this.stateSet = stateSet;
+            this.accept = accept;
+            this.next = new LazyState[nClasses];
+        }
+    }
+
+    private final CompactNFA nfa;
+    private final int maxStates;
+    private final NFASimulator simulator;
+    private final SparseSet scratch;
+    private final SparseSet successors;
+    private final Alphabet alphabet;
+    private final Map<StateSet, LazyState> cache;
+    private final LazyState dead = new LazyState(new StateSet(new int[0]), false, 0);
+    private LazyState start;
+    private long hits;
+    private long misses;
+    private long flushes;
+    private long fallbacks;
+    private long processed;
+    private long lastFlush = -1;
+}
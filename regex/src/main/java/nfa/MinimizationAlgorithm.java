@@ -0,0 +1,19 @@
+package nfa;
+
+/**
+ * Algorithms for {@link NFAOperations#minimize(NFA, MinimizationAlgorithm)}.
+ */
+public enum MinimizationAlgorithm {
+    /**
+     * Brzozowski's algorithm: reverse, determinize, reverse, determinize. The
+     * determinization of the reversed automaton can be exponential, even when the
+     * minimal automaton is small.
+     */
+    BRZOZOWSKI,
+
+    /**
+     * Determinize once and then minimize the DFA with Hopcroft's partition refinement
+     * algorithm ({@link dfa.DFAOperations#minimize(dfa.DFA)}).
+     */
+    HOPCROFT
+}
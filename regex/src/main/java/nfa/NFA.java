@@ -1,9 +1,10 @@
 package nfa;
 
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.SetMultimap;
+import match.Matcher;
 
-import javax.swing.plaf.nimbus.State;
 import java.util.*;
 
 /**
@@ -24,6 +25,9 @@ public class NFA {
 
         for (NFAState state : states) {
             NFAState cloneState = new NFAState(state.isAccept());
+            if (state.isAccept())
+                for (int pattern : state.getPatterns())
+                    cloneState.addPattern(pattern);
             cloneMapping.put(state, cloneState);
         }
 
@@ -31,9 +35,11 @@ public class NFA {
             NFAState state = stateCloneState.getKey();
             NFAState cloneState = stateCloneState.getValue();
 
-            for (Map.Entry<Character, NFAState> transition : state.getTransitions().entries()) {
+            for (Map.Entry<CharRange, NFAState> transition : state.getTransitions().entries()) {
                 cloneState.addTransition(transition.getKey(), cloneMapping.get(transition.getValue()));
             }
+            for (NFAState to : state.getEpsilons())
+                cloneState.addEpsilon(cloneMapping.get(to));
         }
         return new NFA(cloneMapping.get(getStartState()));
     }
@@ -54,7 +60,8 @@ public class NFA {
     }
 
     /**
-     * Get the states in the automaton (all states that are accessible through the start state).
+     * Get the states in the automaton (all states that are accessible through the start state,
+     * by transitions or epsilon transitions).
      *
      * @return The automaton's states.
      */
@@ -72,15 +79,20 @@ public class NFA {
                     stateQueue.add(toState);
                 }
             }
+            for (NFAState toState : state.getEpsilons()) {
+                if (!states.contains(toState)) {
+                    stateQueue.add(toState);
+                }
+            }
         }
         return states;
     }
 
     /**
-     * Number states. Used by {@link #toDot()} to obtain state numbers. The traversal is
-     * breadth-first, so that deeper states tend to get higher numbers.
+     * Number states. Used by {@link #toDot()} and {@link CompactNFA} to obtain state numbers.
+     * The traversal is breadth-first, so that deeper states tend to get higher numbers.
      */
-    private Map<NFAState, Integer> numberStates() {
+    Map<NFAState, Integer> numberStates() {
         Map<NFAState, Integer> numbers = new HashMap<>();
 
         int i = 0;
@@ -97,6 +109,7 @@ public class NFA {
             for (NFAState toState : state.getTransitions().values()) {
                 stateQueue.add(toState);
             }
+            stateQueue.addAll(state.getEpsilons());
         }
         return numbers;
     }
@@ -105,31 +118,24 @@ public class NFA {
     /**
      * RECOGNIZE
      * ...if a string is valid according to this NFA.
-     * uses a BFS approach to traverse NFA
+     * uses a set-based simulation of the NFA, see {@link NFASimulator}.
+     * every call converts the automaton to a {@link CompactNFA} first, which takes time linear
+     * in the size of the automaton on top of the simulation. to recognize many strings, build
+     * the {@link NFASimulator} once and reuse it.
      * @param string The string to be recognize.
      * @return {@code true} if the string could be recognized, {@code false} otherwise.
      */
     public boolean recognize(String string) {
         Preconditions.checkNotNull(string);
+        return new NFASimulator(this).recognize(string);
+    }
 
-        int index = 0; // for tracking our position in the string
-        Queue<StatePair> memory = new LinkedList<>(); // store states still to visit
-        memory.add(new StatePair(index, this.startState)); // add the first state to the visit list
-
-        while (!memory.isEmpty()) {
-            StatePair sp = memory.poll();
-            NFAState curState = sp.getState();
-            index = sp.getIndex();
-            if (index == string.length() && curState.isAccept()) return true; //we are at end of string and an accState
 
-            if (index < string.length()) {
-                Set<NFAState> transitions = curState.to(string.charAt(index));
-                for (NFAState s : transitions) {
-                    memory.add(new StatePair(index + 1, s));
-                }
-            }
-        }
-        return false;
+    /**
+     * Start a streaming recognition session, that simulates a snapshot of the automaton.
+     */
+    public Matcher matcher() {
+        return new CompactNFA(this).matcher();
     }
 
 
@@ -156,35 +162,19 @@ public class NFA {
             if (s.isAccept())
                 stringBuilder.append(String.format("%d [peripheries=2];\n", stateNumber));
 
-            for (Map.Entry<Character, NFAState> trans : s.getTransitions().entries())
-                stringBuilder.append(String.format("%d -> %d [label=\"%c\"];\n", stateNumber,
+            for (Map.Entry<CharRange, NFAState> trans : s.getTransitions().entries())
+                stringBuilder.append(String.format("%d -> %d [label=\"%s\"];\n", stateNumber,
                         stateNumbers.get(trans.getValue()), trans.getKey()));
+
+            for (NFAState to : s.getEpsilons())
+                stringBuilder.append(String.format("%d -> %d [label=\"%s\"];\n", stateNumber,
+                        stateNumbers.get(to), EPSILON));
         }
         stringBuilder.append("}");
         return stringBuilder.toString();
     }
 
-    /**
-     * State-string index pair. Used for keeping track of search states when recognizing a
-     * string using the automaton.
-     */
-    private class StatePair {
-        private final int index;
-        private final NFAState state;
-
-        public StatePair(int index, NFAState state) {
-            this.index = index;
-            this.state = state;
-        }
-
-        public int getIndex() {
-            return index;
-        }
-
-        public NFAState getState() {
-            return state;
-        }
-    }
+    static final String EPSILON = "\u03b5";
 
     //CLASS INSTANCE VARIABLES
     private final NFAState startState;
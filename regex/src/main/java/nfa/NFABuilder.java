@@ -0,0 +1,207 @@
+package nfa;
+
+import alphabet.CharRange;
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder for NFAs that compiles an expression in a single pass. In contrast to
+ * the combinators in {@link NFAOperations}, the builder does not clone its inputs and
+ * does not search for accepting states. Instead, each operation returns a
+ * {@link Fragment} that keeps track of its start state and its accepting states. A
+ * fragment is consumed when it is passed to an operation and should not be used again.
+ * <p>
+ * All states are allocated in the builder's arena, so the number of states that were
+ * allocated is available through {@link #size()}.
+ */
+public final class NFABuilder {
+    public NFABuilder() {
+        states = new ArrayList<>();
+    }
+
+    /**
+     * Create a fragment that recognizes one character.
+     */
+    public Fragment character(char c) {
+        NFAState startState = newState(false);
+        NFAState acceptState = newState(true);
+        startState.addTransition(c, acceptState);
+        return new Fragment(startState, new AcceptList(acceptState));
+    }
+
+    /**
+     * Create a fragment that recognizes one character from the given ranges. Each range is
+     * a single transition.
+     */
+    public Fragment characterClass(Iterable<CharRange> ranges) {
+        Preconditions.checkNotNull(ranges);
+
+        NFAState startState = newState(false);
+        NFAState acceptState = newState(true);
+        for (CharRange range : ranges)
+            startState.addTransition(range, acceptState);
+        return new Fragment(startState, new AcceptList(acceptState));
+    }
+
+    /**
+     * Concatenate two fragments. The accepting states of the first fragment get an epsilon
+     * transition to the start state of the second fragment.
+     */
+    public Fragment concatenate(Fragment fragment, Fragment fragment2) {
+        Preconditions.checkNotNull(fragment);
+        Preconditions.checkNotNull(fragment2);
+
+        NFAState start2 = fragment2.start;
+        for (AcceptList.Node node = fragment.accepts.head; node != null; node = node.next) {
+            node.state.setAccept(false);
+            node.state.addEpsilon(start2);
+        }
+
+        // when the second fragment accepts the empty string, the accepting states of the first
+        // fragment still accept through their epsilon transitions.
+        return new Fragment(fragment.start, fragment2.accepts);
+    }
+
+    /**
+     * Create the union of two fragments.
+     */
+    public Fragment union(Fragment fragment, Fragment fragment2) {
+        Preconditions.checkNotNull(fragment);
+        Preconditions.checkNotNull(fragment2);
+
+        NFAState startState = newState(false);
+        startState.addEpsilon(fragment.start);
+        startState.addEpsilon(fragment2.start);
+
+        return new Fragment(startState, fragment.accepts.append(fragment2.accepts));
+    }
+
+    /**
+     * Create the union of several fragments. In contrast to repeated calls of
+     * {@link #union(Fragment, Fragment)}, only one start state is created, so every fragment
+     * is one epsilon transition away from the start state.
+     */
+    public Fragment union(List<Fragment> fragments) {
+        Preconditions.checkNotNull(fragments);
+        Preconditions.checkArgument(!fragments.isEmpty(), "No fragments");
+
+        NFAState startState = newState(false);
+        AcceptList accepts = null;
+        for (Fragment fragment : fragments) {
+            startState.addEpsilon(fragment.start);
+            accepts = accepts == null ? fragment.accepts : accepts.append(fragment.accepts);
+        }
+
+        return new Fragment(startState, accepts);
+    }
+
+    /**
+     * Add a pattern to the accepting states of a fragment, see {@link NFAState#addPattern(int)}.
+     * States get the patterns of the accepting states in their epsilon closure, so a fragment
+     * should get its pattern before it is combined with other fragments.
+     */
+    public Fragment pattern(Fragment fragment, int pattern) {
+        Preconditions.checkNotNull(fragment);
+
+        for (AcceptList.Node node = fragment.accepts.head; node != null; node = node.next)
+            node.state.addPattern(pattern);
+
+        return fragment;
+    }
+
+    /**
+     * Create the Kleene star of a fragment.
+     */
+    public Fragment kleeneStar(Fragment fragment) {
+        Preconditions.checkNotNull(fragment);
+
+        NFAState stateK = newState(true); // k is accepting and leads to the old start state
+        stateK.addEpsilon(fragment.start);
+
+        for (AcceptList.Node node = fragment.accepts.head; node != null; node = node.next)
+            node.state.addEpsilon(stateK);
+
+        return new Fragment(stateK, fragment.accepts.append(new AcceptList(stateK)));
+    }
+
+    /**
+     * Create the Kleene plus of a fragment: the accepting states get an epsilon transition
+     * back to the start state, so the fragment is not copied.
+     */
+    public Fragment kleenePlus(Fragment fragment) {
+        Preconditions.checkNotNull(fragment);
+
+        for (AcceptList.Node node = fragment.accepts.head; node != null; node = node.next)
+            node.state.addEpsilon(fragment.start);
+
+        return fragment;
+    }
+
+    /**
+     * Construct the automaton for a fragment.
+     */
+    public NFA build(Fragment fragment) {
+        Preconditions.checkNotNull(fragment);
+        return new NFA(fragment.start);
+    }
+
+    /**
+     * Get the number of states that were allocated by this builder. States that became
+     * unreachable are also counted.
+     */
+    public int size() {
+        return states.size();
+    }
+
+    private NFAState newState(boolean accept) {
+        NFAState state = new NFAState(accept);
+        states.add(state);
+        return state;
+    }
+
+    /**
+     * Part of an automaton under construction: its start state and accepting states.
+     */
+    public static final class Fragment {
+        private final NFAState start;
+        private final AcceptList accepts;
+
+        private Fragment(NFAState start, AcceptList accepts) {
+            this.start = start;
+            this.accepts = accepts;
+        }
+    }
+
+    /**
+     * Singly-linked list of accepting states, that can be appended in constant time.
+     * Appending consumes both lists.
+     */
+    private static final class AcceptList {
+        private final Node head;
+        private Node tail;
+
+        AcceptList(NFAState state) {
+            head = new Node(state);
+            tail = head;
+        }
+
+        AcceptList append(AcceptList other) {
+            tail.next = other.head;
+            tail = other.tail;
+            return this;
+        }
+
+        private static final class Node {
+            private final NFAState state;
+            private Node next;
+
+            Node(NFAState state) {
+                this.state = state;
+            }
+        }
+    }
+
+    private final List<NFAState> states;
+}
@@ -0,0 +1,46 @@
+package nfa;
+
+import match.AbstractMatcher;
+
+/**
+ * Matcher that simulates a {@link CompactNFA}, like {@link NFASimulator}. The state between
+ * chunks is the set of active states, which is bounded by the number of states.
+ */
+final class NFAMatcher extends AbstractMatcher {
+    NFAMatcher(CompactNFA nfa) {
+        this.nfa = nfa;
+        current = new SparseSet(nfa.nStates);
+        next = new SparseSet(nfa.nStates);
+        nfa.addClosure(nfa.getStartState(), current);
+    }
+
+    @Override
+    protected void consume(char[] buf, int off, int len) {
+        for (int i = off, end = off + len; i < end && !current.isEmpty(); ++i) {
+            next.clear();
+            NFASimulator.step(nfa, current, buf[i], next);
+
+            SparseSet tmp = current;
+            current = next;
+            next = tmp;
+        }
+    }
+
+    @Override
+    public boolean isAcceptingNow() {
+        for (int i = 0; i < current.size(); ++i)
+            if (nfa.accept.get(current.get(i)))
+                return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean isDead() {
+        return current.isEmpty();
+    }
+
+    private final CompactNFA nfa;
+    private SparseSet current;
+    private SparseSet next;
+}
@@ -1,13 +1,18 @@
 package nfa;
 
+import alphabet.Alphabet;
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 import dfa.DFA;
 import dfa.DFAOperations;
 import dfa.DFAState;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class NFAOperations {
     /**
@@ -96,187 +101,261 @@ public class NFAOperations {
     /**
      * DETERMINIZE
      * take an NFA and return a deterministic version of it (DFA)
-     * algorithm uses the subset construction
+     * algorithm uses the subset construction. NFA states are numbered, and each set of NFA
+     * states is interned as a sorted array of state numbers, so that looking up the DFA
+     * state for a set is a single hash table lookup.
      * @param nfa
      * @return
      */
     public static DFA determinize(NFA nfa) {
         Preconditions.checkNotNull(nfa);
-        Set<NFAState> startSet = ImmutableSet.of(nfa.getStartState()); // a set containing only the startState
-        Map<Set<NFAState>, DFAState> stateMapping = new HashMap<>();   //starts empty. maps Set<NFaState> to DFAState
-        return new DFA(determinize(startSet, stateMapping));
+        return determinize(new CompactNFA(nfa));
+    }
+
+    /**
+     * DETERMINIZE
+     * take a compact NFA and return a deterministic version of it (DFA)
+     * @param nfa
+     * @return
+     */
+    public static DFA determinize(CompactNFA nfa) {
+        Preconditions.checkNotNull(nfa);
+        return new DFA(determinizeStates(nfa));
     }
 
     // returns the start state of the dfa
-    private static DFAState determinize(Set<NFAState> stateSet, Map<Set<NFAState>, DFAState> stateMapping) {
+    private static DFAState determinizeStates(CompactNFA nfa) {
+        // the subset construction works on character classes rather than characters: all
+        // characters in a class lead to the same set of NFA states.
+        Alphabet alphabet = nfa.getAlphabet();
 
-        Queue<Set<NFAState>> memory = new LinkedList<>();
-        memory.add(stateSet);
-        DFAState curDFAst = new DFAState(false);
-        stateMapping.put(stateSet, curDFAst);
+        Successors successors = new Successors(nfa, alphabet, Successors.transitionClasses(nfa, alphabet));
 
-        while (!memory.isEmpty()) {
+        Map<StateSet, DFAState> stateMapping = new HashMap<>(); // maps interned sets of NFA states to DFA states
+        Queue<StateSet> memory = new ArrayDeque<>();
 
-            // remove the current stateSet of nfas (mapped to DFAstate) from the queue for processing
-            // and use it to retrieve the current DFAState
-            Set<NFAState> curStateSet = memory.poll();
-            curDFAst = stateMapping.get(curStateSet);
+        StateSet startSet = new StateSet(nfa.getClosure(0)); // the epsilon closure of the startState
+        DFAState startState = newDFAState(nfa, startSet);
+        stateMapping.put(startSet, startState);
+        memory.add(startSet);
 
+        while (!memory.isEmpty()) {
+            StateSet curStateSet = memory.poll();
+            DFAState curDFAst = stateMapping.get(curStateSet);
+
+            // each class with destinations gives a transition to the DFA state of the destination set.
+            SortedMap<CharRange, DFAState> rangeTransitions = new TreeMap<>();
+            int nTouched = successors.compute(curStateSet);
+            for (int i = 0; i < nTouched; ++i) {
+                StateSet destStates = successors.getSet(i);
+                DFAState nextDFAst = stateMapping.get(destStates);
+                if (nextDFAst == null) {
+                    nextDFAst = newDFAState(nfa, destStates);
+                    stateMapping.put(destStates, nextDFAst);
+                    memory.add(destStates);
+                }
 
-            // use map to store/collect transitions from each NFASt in the set, to collate into the DFASt transitions
-            // as per the subset construction technique
-            Map<Character, Set<NFAState>> dfaStTransitionBuild = new HashMap<>();
+                for (CharRange range : alphabet.ranges(successors.getClass(i)))
+                    rangeTransitions.put(range, nextDFAst);
+            }
+
+            curDFAst.addTransitions(rangeTransitions);
+        } // end while
+        return startState; //returns the first DFAState, which references the rest of DFA
+    }
 
-            // update curDFAState: update accStatus and transitions, by going through each transition of each NFAState
-            // in the Set<NFAState> that the DFAState maps to
-            for (NFAState ns : curStateSet) {
-                if (ns.isAccept()) curDFAst.setAccept(true); //if curStateSet has an accState in it, the dfa is accept
+    /**
+     * DETERMINIZE in parallel, on a temporary pool with one thread per core.
+     * @param nfa
+     * @return a DFA that is equal to {@link #determinize(NFA)} up to the order of the states
+     */
+    public static DFA determinizeParallel(NFA nfa) {
+        Preconditions.checkNotNull(nfa);
 
-                for (Character x : ns.getTransitions().keySet()){  // go through all char transitions of this state
-                    Set<NFAState> accessibleFromX = ns.to(x); // get the destination states (returns non-modifiable set)
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return determinizeParallel(new CompactNFA(nfa), pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-                    // add these to the existing state set so far (create one if not) for this char.
-                    Set<NFAState> setSoFarForX = dfaStTransitionBuild.get(x); // pull from outer storage, add new entries to it
+    /**
+     * DETERMINIZE in parallel. The subset construction proceeds breadth-first, one level at a
+     * time: the state sets of a level are expanded by tasks on the pool, which intern their
+     * successor sets in a concurrent table. The sets that were new give the next level.
+     * @param nfa
+     * @param pool the pool that expands the state sets
+     * @return a DFA that is equal to {@link #determinize(CompactNFA)} up to the order of the states
+     */
+    public static DFA determinizeParallel(CompactNFA nfa, ForkJoinPool pool) {
+        Preconditions.checkNotNull(nfa);
+        Preconditions.checkNotNull(pool);
 
-                    if (setSoFarForX != null){ // we have an existing set for this char, add to it
-                        Set<NFAState> updatedSet = new HashSet<>();
-                        for (NFAState item : setSoFarForX){
-                            updatedSet.add(item);
-                        }
-                        for (NFAState dest : accessibleFromX) {
-                            updatedSet.add(dest); //additional destinations added!
-                        }
-                        dfaStTransitionBuild.put(x,updatedSet); // put back to transition builder,
+        ParallelDeterminizer determinizer = new ParallelDeterminizer(nfa, pool.getParallelism());
+        List<StateSet> level = Collections.singletonList(determinizer.startSet);
+        while (!level.isEmpty())
+            level = pool.invoke(determinizer.new ExpandTask(level, 0, level.size()));
 
-                    } else { // nothing exists for this transition char yet, create it
-                        dfaStTransitionBuild.put(x,accessibleFromX);
-                    }
-                }
-            } //end for each NFAState in curStateSet
+        return new DFA(determinizer.stateMapping.get(determinizer.startSet));
+    }
 
+    /**
+     * The shared state of a parallel subset construction.
+     */
+    private static final class ParallelDeterminizer {
+        ParallelDeterminizer(CompactNFA nfa, int parallelism) {
+            this.nfa = nfa;
+            alphabet = nfa.getAlphabet();
+            transClasses = Successors.transitionClasses(nfa, alphabet);
+            stateMapping = new ConcurrentHashMap<>(16, 0.75f, parallelism);
+
+            startSet = new StateSet(nfa.getClosure(0));
+            stateMapping.put(startSet, newDFAState(nfa, startSet));
+        }
 
-            // we now have the complete DFATransitions.
-            // the destination set from each transition char represents both:
-            // - a transition for curDFA, and
-            // - a new DFA (if we don't already have it on stateMapping)
+        /**
+         * Expands the state sets <i>level[from..to - 1]</i>, and returns the successor sets
+         * that were not seen before.
+         */
+        private final class ExpandTask extends RecursiveTask<List<StateSet>> {
+            ExpandTask(List<StateSet> level, int from, int to) {
+                this.level = level;
+                this.from = from;
+                this.to = to;
+            }
 
-            for (Character x : dfaStTransitionBuild.keySet()){
-                Set<NFAState> destStates = dfaStTransitionBuild.get(x); //get set destination states for this char
+            @Override
+            protected List<StateSet> compute() {
+                if (to - from > EXPAND_BATCH_SIZE) {
+                    int mid = (from + to) >>> 1;
+                    ExpandTask right = new ExpandTask(level, mid, to);
+                    right.fork();
+                    List<StateSet> next = new ExpandTask(level, from, mid).compute();
+                    next.addAll(right.join());
+                    return next;
+                }
 
-                // add new DFA to mapping
-                // but only if we haven't already... check that
-                // if we have already added it, point curDFAst to the existing state instead of making the new one
-                DFAState nextDFAst = new DFAState(false);
+                // only this task adds transitions to the DFA states of its sets.
+                List<StateSet> next = new ArrayList<>();
+                Successors successors = new Successors(nfa, alphabet, transClasses);
+                for (int s = from; s < to; ++s) {
+                    StateSet curStateSet = level.get(s);
+
+                    SortedMap<CharRange, DFAState> rangeTransitions = new TreeMap<>();
+                    int nTouched = successors.compute(curStateSet);
+                    for (int i = 0; i < nTouched; ++i) {
+                        StateSet destStates = successors.getSet(i);
+                        DFAState nextDFAst = stateMapping.get(destStates);
+                        if (nextDFAst == null) {
+                            DFAState created = newDFAState(nfa, destStates);
+                            nextDFAst = stateMapping.putIfAbsent(destStates, created);
+                            if (nextDFAst == null) {
+                                nextDFAst = created;
+                                next.add(destStates);
+                            }
+                        }
 
-                boolean addedAlready = false;
-                for (Set<NFAState> key: stateMapping.keySet()){
-                    if (destStates.equals(key)){
-                        curDFAst.addTransition(x,stateMapping.get(key)); //
-                        addedAlready = true;
+                        for (CharRange range : alphabet.ranges(successors.getClass(i)))
+                            rangeTransitions.put(range, nextDFAst);
                     }
-                }
-                if (!addedAlready) curDFAst.addTransition(x,nextDFAst);
 
-                // finally, add this new dfaState nextDFAst to the mapping. The transitions will be added next
-                // iteration when nextDFAst becomes curDFAst.
-                if (!stateMapping.containsKey(destStates)) {
-                    memory.add(destStates);
-                    stateMapping.put(destStates, nextDFAst);
+                    stateMapping.get(curStateSet).addTransitions(rangeTransitions);
                 }
 
-            } //end for each. DFA state Transitions for this Set<NFAState>/DFASt
-        } // end while
-        return stateMapping.get(stateSet); //returns the first DFAState, which references the rest of DFA
-    }
+                return next;
+            }
 
+            private final List<StateSet> level;
+            private final int from;
+            private final int to;
+        }
 
+        private final CompactNFA nfa;
+        private final Alphabet alphabet;
+        private final int[][] transClasses;
+        private final ConcurrentMap<StateSet, DFAState> stateMapping;
+        private final StateSet startSet;
+    }
 
+    private static final int EXPAND_BATCH_SIZE = 64;
+
+    /**
+     * Create the DFA state for a set of NFA states. The DFA state is accepting if one of the NFA
+     * states is accepting, and gets the patterns of the accepting NFA states.
+     */
+    private static DFAState newDFAState(CompactNFA nfa, StateSet states) {
+        boolean accept = false;
+        for (int ns : states.getStates())
+            accept |= nfa.accept.get(ns);
+
+        DFAState dfaState = new DFAState(accept);
+        for (int ns : states.getStates())
+            if (nfa.accept.get(ns))
+                for (int i = nfa.patternOffsets[ns]; i < nfa.patternOffsets[ns + 1]; ++i)
+                dfaState.addPattern(nfa.patterns[i]);
+
+        return dfaState;
+    }
 
     /**
      * REVERSAL NFA
      * returns the input nfa, reversed
      * @return NFA object reversed
      */
-    // PSEUDO for future me
-    // build a reversed NFA in parallel
-    // o - original
-    // rev - reversed
-    // cur - current
-    // oCurState - the current state from the original NFA that we are looking at
-    // we will combine the original accStates into one state. revStartState
-    // so all transitions in oNFA that point to an accepting state, will be pointed to fromm revStartState
-
-    // build revNFA as we go through oNFA
-    // for each subsequent oNode, we want to make a matching revNode (if not visited yet) and reverse the transition
-    // by pointing from the next revNode back to current. then adding that node to the queue)
-
     public static NFA reversalNFA(NFA nfa){
         Preconditions.checkNotNull(nfa);
-        NFA cloneNFA = nfa.clone(); // be careful to not modify the original arg
-
-        Queue<NFAState> oMemory = new LinkedList<>();
-        Queue<NFAState> rMemory = new LinkedList<>();
-        NFAState oCurState = cloneNFA.getStartState(); // for traversing oNFA
-        NFAState revStartState = new NFAState(oCurState.isAccept()); //revStart has same acceptStatus as oStart
-        NFAState revAccState = new NFAState(true); // always accepting
-
-        oMemory.add(oCurState);
-        rMemory.add(revAccState); //we start from the back. mirroring. revAcc mirrors oStart
-
-
-        //make a memory of NFAStates already visited, and the rState that corresponds. so we can retrieve it when needed
-        //and keep track of whether we have visited a state (by using !keyset.contains(key))
-        Map<NFAState,NFAState> originalToReverseMap = new HashMap<>(); // key is already visited oNFAState
-        originalToReverseMap.put(oCurState,revAccState);
-
-        //the traversal through oNFA
-        while (!oMemory.isEmpty()){
-
-            oCurState = oMemory.poll();
-            NFAState rCurState = rMemory.poll();
-
-            //each transition of oCurrState
-            for (Character x : oCurState.getTransitions().keySet()){
-                for (NFAState oTransState : oCurState.to(x)){ //transition points to a set of states (nondeterministic)
-
-                    // this transition destination can be categorized as follows.
-                    // 1. accState, already visited.
-                    //    - is is oAccept, which mean we are pooling it into revStart, to transition from that
-                    // 2. already visited node
-                    //    - transition from the revState corresponding to the alreadyvisited oState, to the rCurState
-                    // 3. accState, not already visited.
-                    //    - the revStartState (the oAccStates) will point to revCur.
-                    // 4. not already visited node
-
-
-                    boolean alreadyVisited = originalToReverseMap.containsKey(oTransState);
-
-                    if (oTransState.isAccept() && alreadyVisited) { // 1.
-                        revStartState.addTransition(x,rCurState);
+        return reversal(new CompactNFA(nfa)).toNFA();
+    }
 
-                    } else if (alreadyVisited){ // 2.
-                        originalToReverseMap.get(oTransState).addTransition(x,rCurState);
+    /**
+     * REVERSAL
+     * returns the input nfa, reversed. every transition and epsilon transition is reversed,
+     * the original start state becomes the accepting state, and a new start state gets an
+     * epsilon transition to every original accepting state. the reversed automaton has as
+     * many transitions as the original one.
+     * in the reversed automaton, the new start state is 0 and original state i is state i + 1.
+     * @return the reversed automaton
+     */
+    public static CompactNFA reversal(CompactNFA nfa) {
+        Preconditions.checkNotNull(nfa);
 
-                    } else if (oTransState.isAccept() && !alreadyVisited) { // 3.
+        int nTransitions = nfa.getNumberOfTransitions();
+        int[] sources = new int[nTransitions];
+        char[] los = new char[nTransitions];
+        char[] his = new char[nTransitions];
+        int[] targets = new int[nTransitions];
+
+        int idx = 0;
+        for (int state = 0; state < nfa.nStates; ++state) {
+            for (int trans = nfa.offsets[state]; trans < nfa.offsets[state + 1]; ++trans) {
+                sources[idx] = nfa.targets[trans] + 1;
+                los[idx] = nfa.los[trans];
+                his[idx] = nfa.his[trans];
+                targets[idx++] = state + 1;
+            }
+        }
 
-                        revStartState.addTransition(x,rCurState);
-                        oMemory.add(oTransState);
-                        rMemory.add(revStartState);
-                        originalToReverseMap.put(oTransState,revStartState);
+        int nEpsilons = nfa.getNumberOfEpsilons() + nfa.accept.cardinality();
+        int[] epsSources = new int[nEpsilons];
+        int[] epsTargets = new int[nEpsilons];
 
-                    } else if (!alreadyVisited) { // 4.
+        int epsIdx = 0;
+        for (int state = 0; state < nfa.nStates; ++state) {
+            for (int eps = nfa.epsOffsets[state]; eps < nfa.epsOffsets[state + 1]; ++eps) {
+                epsSources[epsIdx] = nfa.epsTargets[eps] + 1;
+                epsTargets[epsIdx++] = state + 1;
+            }
+        }
+        for (int state = nfa.accept.nextSetBit(0); state != -1; state = nfa.accept.nextSetBit(state + 1)) {
+            epsSources[epsIdx] = 0;
+            epsTargets[epsIdx++] = state + 1;
+        }
 
-                        NFAState newRevState = new NFAState(false);
-                        newRevState.addTransition(x, rCurState);
+        BitSet accept = new BitSet(nfa.nStates + 1);
+        accept.set(1);
 
-                        oMemory.add(oTransState);
-                        rMemory.add(newRevState);
-                        originalToReverseMap.put(oTransState, newRevState);
-                    }
-                }
-            }
-        } // end while
-        return new NFA(revStartState);
+        return new CompactNFA(nfa.nStates + 1, sources, los, his, targets, epsSources, epsTargets, accept);
     }
 
 
@@ -287,11 +366,30 @@ public class NFAOperations {
      * @return a DFA, minimized
      */
     public static DFA minimize(NFA nfa) {
-        NFA clone = nfa.clone();
-        NFA rev_1 = reversalNFA(clone);
-        DFA det_2 = determinize(rev_1);
-        NFA rev_3 = DFAOperations.reversalDFA(det_2);
-        return determinize(rev_3);
+        return minimize(nfa, MinimizationAlgorithm.BRZOZOWSKI);
+    }
+
+    /**
+     * MINIMIZE
+     * @param nfa
+     * @param algorithm the minimization algorithm to use
+     * @return a DFA, minimized
+     */
+    public static DFA minimize(NFA nfa, MinimizationAlgorithm algorithm) {
+        Preconditions.checkNotNull(nfa);
+        Preconditions.checkNotNull(algorithm);
+
+        switch (algorithm) {
+            case HOPCROFT:
+                return DFAOperations.minimize(determinize(nfa));
+            case BRZOZOWSKI:
+            default:
+                NFA clone = nfa.clone();
+                NFA rev_1 = reversalNFA(clone);
+                DFA det_2 = determinize(rev_1);
+                NFA rev_3 = DFAOperations.reversalDFA(det_2);
+                return determinize(rev_3);
+        }
     }
 
 }
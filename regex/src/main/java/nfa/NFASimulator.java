@@ -0,0 +1,94 @@
+package nfa;
+
+import com.google.common.base.Preconditions;
+import match.Recognizer;
+
+/**
+ * Set-based (Thompson-style) simulation of an {@link NFA}. Rather than following every path
+ * through the automaton separately, the simulator keeps the set of active states for the
+ * current input position. Each state is active at most once per position, so recognition
+ * takes <i>O(|input| * |transitions|)</i> time, without determinizing the automaton first.
+ * <p>
+ * The simulator works on a snapshot of the automaton: changes to the {@link NFA} after
+ * construction are not reflected in the simulator. The active state sets are reused
+ * between calls, so a simulator should not be shared between threads.
+ * <p>
+ * Constructing a simulator converts the {@link NFA} to a {@link CompactNFA} and allocates the
+ * state sets, which takes time linear in the size of the automaton. {@link NFA#recognize(String)}
+ * and {@link CompactNFA#recognize(CharSequence)} pay this cost on every call, so a simulator
+ * should be constructed once when many strings are recognized.
+ */
+public final class NFASimulator implements Recognizer {
+    public NFASimulator(NFA nfa) {
+        this(new CompactNFA(nfa));
+    }
+
+    public NFASimulator(CompactNFA nfa) {
+        this.nfa = nfa;
+        current = new SparseSet(nfa.nStates);
+        next = new SparseSet(nfa.nStates);
+    }
+
+    /**
+     * RECOGNIZE if a string is valid according to the NFA.
+     *
+     * @param string The string to be recognized.
+     * @return {@code true} if the string could be recognized, {@code false} otherwise.
+     */
+    @Override
+    public boolean recognize(CharSequence string) {
+        Preconditions.checkNotNull(string);
+        return recognize(string, 0, new int[]{0});
+    }
+
+    /**
+     * Recognize the suffix of a string that starts at <i>from</i>, starting with the given
+     * set of active states and their epsilon closures.
+     */
+    boolean recognize(CharSequence string, int from, int[] startStates) {
+        SparseSet cur = current;
+        SparseSet nxt = next;
+
+        cur.clear();
+        for (int state : startStates)
+            nfa.addClosure(state, cur);
+
+        for (int index = from; index < string.length(); ++index) {
+            char c = string.charAt(index);
+
+            nxt.clear();
+            step(nfa, cur, c, nxt);
+
+            // No active states left, the string cannot be recognized anymore.
+            if (nxt.isEmpty())
+                return false;
+
+            SparseSet tmp = cur;
+            cur = nxt;
+            nxt = tmp;
+        }
+
+        for (int i = 0; i < cur.size(); ++i)
+            if (nfa.accept.get(cur.get(i)))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Add the states that are reached from the states in <i>from</i> by following
+     * transitions for the character <i>c</i> to <i>to</i>, with their epsilon closures.
+     */
+    static void step(CompactNFA nfa, SparseSet from, char c, SparseSet to) {
+        for (int i = 0; i < from.size(); ++i) {
+            int state = from.get(i);
+            for (int trans = nfa.offsets[state], end = nfa.matchEnd(state, c); trans < end; ++trans)
+                if (nfa.his[trans] >= c)
+                    nfa.addClosure(nfa.targets[trans], to);
+        }
+    }
+
+    private final CompactNFA nfa;
+    private final SparseSet current;
+    private final SparseSet next;
+}
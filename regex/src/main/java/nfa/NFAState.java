@@ -1,13 +1,19 @@
 package nfa;
 
+import alphabet.CharRange;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.SetMultimap;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
  * State in a non-deterministic finite-state automaton.
@@ -16,28 +22,20 @@ public class NFAState {
     public NFAState(boolean accept) {
         this.accept = accept;
         transitions = HashMultimap.create();
+        epsilons = new ArrayList<>();
     }
 
     /**
-     * Add an epsilon transition to the given state. Note that the epsilon is
-     * not implemented as an explicit transition. The transitions of the to-state
-     * are just copied to this state. Moreover, if the to-state is accepting,
-     * this state also becomes accepting. This means that the to-state should be
-     * 'frozen' (does not get new transitions later), otherwise changes are not
-     * reflected in this state.
+     * Add an epsilon transition to the given state. The transition is explicit: the
+     * transitions of the to-state are not copied, so the to-state can still get new
+     * transitions. A state accepts (with the patterns of) the accepting states in its
+     * epsilon closure, see {@link CompactNFA}.
      *
      * @param to The state the transition leads to.
      */
     public void addEpsilon(NFAState to) {
         Preconditions.checkNotNull(to);
-
-        if (to.isAccept()) {
-            setAccept(true);
-        }
-
-        for (Map.Entry<Character, NFAState> toTransition : to.transitions.entries()) {
-            transitions.put(toTransition.getKey(), toTransition.getValue());
-        }
+        epsilons.add(to);
     }
 
     /**
@@ -47,40 +45,97 @@ public class NFAState {
      * @param to The state the transition leads to.
      */
     public void addTransition(char ch, NFAState to) {
-        transitions.put(ch, to);
+        transitions.put(CharRange.of(ch), to);
+    }
+
+    /**
+     * Add an outgoing transition for a range of characters to this state.
+     *
+     * @param range The characters on the transition.
+     * @param to    The state the transition leads to.
+     */
+    public void addTransition(CharRange range, NFAState to) {
+        Preconditions.checkNotNull(range);
+        transitions.put(range, to);
     }
 
     /**
      * Get all transitions that leave this state.
      */
-    SetMultimap<Character, NFAState> getTransitions() {
+    SetMultimap<CharRange, NFAState> getTransitions() {
         return transitions;
     }
 
+    /**
+     * Get the epsilon transitions that leave this state.
+     */
+    List<NFAState> getEpsilons() {
+        return epsilons;
+    }
+
+    /**
+     * Add a pattern to this state, which makes the state accepting. In an automaton for
+     * several patterns, these are the patterns that match when the input ends in this state.
+     *
+     * @param pattern The pattern number.
+     */
+    public void addPattern(int pattern) {
+        Preconditions.checkArgument(pattern >= 0, "Invalid pattern: %s", pattern);
+
+        if (patterns == null)
+            patterns = new TreeSet<>();
+        patterns.add(pattern);
+        accept = true;
+    }
+
+    /**
+     * Get the patterns of this state, see {@link #addPattern(int)}.
+     */
+    public SortedSet<Integer> getPatterns() {
+        if (patterns == null)
+            return ImmutableSortedSet.of();
+
+        return Collections.unmodifiableSortedSet(patterns);
+    }
+
+    /**
+     * Check whether this state itself is accepting. States that reach an accepting state
+     * through epsilon transitions accept as well, but are not accepting themselves.
+     */
     public boolean isAccept() {
         return accept;
     }
 
+    /**
+     * Make this state accepting or non-accepting. A state that is made non-accepting loses
+     * its patterns, see {@link #addPattern(int)}.
+     */
     public void setAccept(boolean accept) {
         this.accept = accept;
+        if (!accept)
+            patterns = null;
     }
 
 
     /**
-     * Get the states that are reached by following a transition for the given character.
+     * Get the states that are reached by following a transition of this state for the given
+     * character. Epsilon transitions are not followed.
      * @param c Transition character.
      * @return The reached states, or the empty set if there is no outgoing transition
      * for the character.
      */
     public Set<NFAState> to(char c) {
-        Set<NFAState> toStates = transitions.get(c);
-        if (toStates == null)
-            return new HashSet<>();
+        Set<NFAState> toStates = new HashSet<>();
+        for (Map.Entry<CharRange, NFAState> transition : transitions.entries())
+            if (transition.getKey().contains(c))
+                toStates.add(transition.getValue());
 
         return Collections.unmodifiableSet(toStates);
     }
 
     // INSTANCE VARIABLES
-    private final SetMultimap<Character, NFAState> transitions;
+    private final SetMultimap<CharRange, NFAState> transitions;
+    private final List<NFAState> epsilons;
     private boolean accept;
+    private SortedSet<Integer> patterns;
 }
@@ -0,0 +1,56 @@
+package nfa;
+
+/**
+ * Set of integers in the range <i>[0, capacity)</i>, after Briggs and Torczon. Adding,
+ * membership tests and clearing the set are all constant time, and the members can be
+ * iterated in insertion order through {@link #get(int)}.
+ */
+final class SparseSet {
+    SparseSet(int capacity) {
+        dense = new int[capacity];
+        sparse = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * Add an element to the set.
+     *
+     * @return {@code true} if the element was not in the set yet.
+     */
+    boolean add(int element) {
+        if (contains(element))
+            return false;
+
+        dense[size] = element;
+        sparse[element] = size++;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean contains(int element) {
+        int idx = sparse[element];
+        return idx < size && dense[idx] == element;
+    }
+
+    /**
+     * Get the i-th element of the set, in insertion order.
+     */
+    int get(int i) {
+        return dense[i];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private final int[] dense;
+    private final int[] sparse;
+    private int size;
+}
@@ -0,0 +1,63 @@
+package nfa;
+
+import java.util.Arrays;
+
+/**
+ * Canonical representation of a set of NFA states: the state numbers in ascending order.
+ * The hash code is computed once, so that state sets can be looked up cheaply in hash maps.
+ */
+final class StateSet {
+    /**
+     * Construct a state set.
+     *
+     * @param states The state numbers, sorted and without duplicates. The array is not
+     *               copied and should not be modified afterwards.
+     */
+    StateSet(int[] states) {
+        this.states = states;
+        this.hash = Arrays.hashCode(states);
+    }
+
+    /**
+     * Construct a state set from the members of a sparse set.
+     */
+    static StateSet of(SparseSet set) {
+        int[] states = new int[set.size()];
+        for (int i = 0; i < states.length; ++i)
+            states[i] = set.get(i);
+        Arrays.sort(states);
+        return new StateSet(states);
+    }
+
+    int[] getStates() {
+        return states;
+    }
+
+    boolean isEmpty() {
+        return states.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof StateSet))
+            return false;
+
+        StateSet other = (StateSet) o;
+        return hash == other.hash && Arrays.equals(states, other.states);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(states);
+    }
+
+    private final int[] states;
+    private final int hash;
+}
@@ -0,0 +1,109 @@
+package nfa;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the successor sets of a set of NFA states in the subset construction, per
+ * character class. The class numbers of the transition labels are shared, the buffers are
+ * not: every thread needs its own instance.
+ */
+final class Successors {
+    Successors(CompactNFA nfa, Alphabet alphabet, int[][] transClasses) {
+        this.nfa = nfa;
+        this.transClasses = transClasses;
+
+        int nClasses = alphabet.getNumberOfClasses();
+        destinations = new int[nClasses][];
+        nDestinations = new int[nClasses];
+        touched = new int[nClasses];
+        sets = new StateSet[nClasses];
+        closure = new SparseSet(nfa.getNumberOfStates());
+    }
+
+    /**
+     * Get the classes of every transition label of an automaton.
+     */
+    static int[][] transitionClasses(CompactNFA nfa, Alphabet alphabet) {
+        Map<CharRange, int[]> labelClasses = new HashMap<>();
+        int[][] transClasses = new int[nfa.getNumberOfTransitions()][];
+        for (int trans = 0; trans < transClasses.length; ++trans) {
+            CharRange label = CharRange.of(nfa.los[trans], nfa.his[trans]);
+            int[] classes = labelClasses.get(label);
+            if (classes == null) {
+                classes = alphabet.classes(label);
+                labelClasses.put(label, classes);
+            }
+            transClasses[trans] = classes;
+        }
+
+        return transClasses;
+    }
+
+    /**
+     * Compute the successors of a set of NFA states. The successor of the <i>i</i>-th class
+     * with transitions is {@link #getSet(int)} for class {@link #getClass(int)}.
+     *
+     * @return The number of classes with transitions.
+     */
+    int compute(StateSet states) {
+        // collect the targets of the transitions of all NFA states in the set, per class.
+        int nTouched = 0;
+        for (int ns : states.getStates()) {
+            for (int trans = nfa.offsets[ns]; trans < nfa.offsets[ns + 1]; ++trans) {
+                for (int cls : transClasses[trans]) {
+                    if (nDestinations[cls] == 0) {
+                        touched[nTouched++] = cls;
+                        if (destinations[cls] == null)
+                            destinations[cls] = new int[4];
+                    }
+
+                    if (nDestinations[cls] == destinations[cls].length)
+                        destinations[cls] = Arrays.copyOf(destinations[cls], 2 * nDestinations[cls]);
+                    destinations[cls][nDestinations[cls]++] = nfa.targets[trans];
+                }
+            }
+        }
+
+        for (int i = 0; i < nTouched; ++i) {
+            int cls = touched[i];
+            int[] dest = destinations[cls];
+            int nDest = nDestinations[cls];
+            nDestinations[cls] = 0;
+
+            // the successor set is closed: add the epsilon closures of the targets.
+            closure.clear();
+            for (int j = 0; j < nDest; ++j)
+                nfa.addClosure(dest[j], closure);
+
+            int[] set = new int[closure.size()];
+            for (int j = 0; j < set.length; ++j)
+                set[j] = closure.get(j);
+            Arrays.sort(set);
+
+            sets[i] = new StateSet(set);
+        }
+
+        return nTouched;
+    }
+
+    int getClass(int i) {
+        return touched[i];
+    }
+
+    StateSet getSet(int i) {
+        return sets[i];
+    }
+
+    private final CompactNFA nfa;
+    private final int[][] transClasses;
+    private final int[][] destinations;
+    private final int[] nDestinations;
+    private final int[] touched;
+    private final StateSet[] sets;
+    private final SparseSet closure;
+}
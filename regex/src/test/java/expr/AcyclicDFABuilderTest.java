@@ -0,0 +1,101 @@
+package expr;
+
+import dfa.AcyclicDFABuilder;
+import dfa.DFA;
+import dfa.DFAOperations;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test incremental construction of minimal acyclic automata, see {@link AcyclicDFABuilder}.
+ */
+public class AcyclicDFABuilderTest {
+    private static final List<String> WORDS = Arrays.asList(
+            "", "tap", "taps", "tip", "tips", "top", "tops", "trap", "traps", "trip", "trips");
+
+    @Test
+    public void acyclicTest1_recognize() {
+        DFA dfa = AcyclicDFABuilder.fromSorted(WORDS);
+
+        for (String word : WORDS)
+            Assert.assertTrue(word, dfa.recognize(word));
+        Assert.assertFalse(dfa.recognize("ta"));
+        Assert.assertFalse(dfa.recognize("tapss"));
+        Assert.assertFalse(dfa.recognize("trop"));
+    }
+
+    @Test
+    public void acyclicTest2_minimal() {
+        DFA dfa = AcyclicDFABuilder.fromSorted(WORDS);
+
+        // start, t, tr, ta/ti/to/tra/tri, tap/tip/top/trap/trip, taps/tips/tops/traps/trips
+        Assert.assertEquals(6, dfa.getStates().size());
+        Assert.assertEquals(dfa.getStates().size(), DFAOperations.minimize(dfa).getStates().size());
+    }
+
+    @Test
+    public void acyclicTest3_sameAsMinimizedUnion() {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 300; ++i) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; ++j)
+                sb.append((char) ('a' + random.nextInt(3)));
+            words.add(sb.toString());
+        }
+
+        DFA dfa = AcyclicDFABuilder.fromUnsorted(words);
+
+        Expression union = Expr.str(words.get(0));
+        for (String word : words.subList(1, words.size()))
+            union = Expr.or(union, Expr.str(word));
+        DFA expected = NFAOperations.minimize(union.compile());
+
+        Assert.assertEquals(expected.getStates().size(), dfa.getStates().size());
+        for (String word : words)
+            Assert.assertTrue(word, dfa.recognize(word));
+        for (int i = 0; i < 1000; ++i) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; ++j)
+                sb.append((char) ('a' + random.nextInt(4)));
+            String s = sb.toString();
+            Assert.assertEquals(s, expected.recognize(s), dfa.recognize(s));
+        }
+    }
+
+    @Test
+    public void acyclicTest4_unsortedAndDuplicates() {
+        List<String> shuffled = new ArrayList<>(WORDS);
+        shuffled.addAll(WORDS);
+        Collections.shuffle(shuffled, new Random(7));
+
+        DFA dfa = AcyclicDFABuilder.fromUnsorted(shuffled);
+        Assert.assertEquals(6, dfa.getStates().size());
+        for (String word : WORDS)
+            Assert.assertTrue(word, dfa.recognize(word));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void acyclicTest5_notSorted() {
+        AcyclicDFABuilder builder = new AcyclicDFABuilder();
+        builder.add("tips");
+        builder.add("tip");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void acyclicTest6_addAfterBuild() {
+        AcyclicDFABuilder builder = new AcyclicDFABuilder();
+        builder.add("tip");
+        builder.build();
+        builder.add("top");
+    }
+}
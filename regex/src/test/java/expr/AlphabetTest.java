@@ -0,0 +1,64 @@
+package expr;
+
+import alphabet.Alphabet;
+import alphabet.CharRange;
+import dfa.CompiledDFA;
+import dfa.DFA;
+import nfa.CompactNFA;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test the partition of characters into equivalence classes.
+ */
+public class AlphabetTest {
+    @Test
+    public void alphabetTest1_nested() {
+        Alphabet alphabet = Alphabet.of(Arrays.asList(CharRange.of('a', 'z'), CharRange.of('m')));
+
+        // [m], [a-l][n-z] and the remaining characters
+        Assert.assertEquals(3, alphabet.getNumberOfClasses());
+        Assert.assertEquals(alphabet.classOf('a'), alphabet.classOf('z'));
+        Assert.assertNotEquals(alphabet.classOf('a'), alphabet.classOf('m'));
+        Assert.assertEquals(alphabet.classOf('A'), alphabet.classOf(Character.MAX_VALUE));
+        Assert.assertEquals(Arrays.asList(CharRange.of('a', 'l'), CharRange.of('n', 'z')),
+                alphabet.ranges(alphabet.classOf('a')));
+        Assert.assertEquals(2, alphabet.classes(CharRange.of('a', 'z')).length);
+    }
+
+    @Test
+    public void alphabetTest2_empty() {
+        Alphabet alphabet = Alphabet.of(Collections.<CharRange>emptyList());
+
+        Assert.assertEquals(1, alphabet.getNumberOfClasses());
+        Assert.assertEquals(Collections.singletonList(CharRange.ANY), alphabet.ranges(0));
+    }
+
+    @Test
+    public void alphabetTest3_sharedClasses() {
+        // [a-z]*m[a-z]: the letters other than m are one class
+        Expression letter = Expr.range('a', 'z');
+        Expression expr = Expr.concat(Expr.concat(Expr.star(letter), Expr.ch('m')), letter);
+
+        NFA nfa = expr.compile();
+        Alphabet alphabet = new CompactNFA(nfa).getAlphabet();
+        Assert.assertEquals(3, alphabet.getNumberOfClasses());
+
+        DFA minDFA = NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+        CompiledDFA compiled = minDFA.compile();
+        Assert.assertEquals(3, compiled.getNumberOfClasses());
+        Assert.assertEquals(compiled.classOf('a'), compiled.classOf('z'));
+        Assert.assertNotEquals(compiled.classOf('a'), compiled.classOf('m'));
+
+        Assert.assertTrue(compiled.recognize("summa"));
+        Assert.assertTrue(compiled.recognize("mm"));
+        Assert.assertFalse(compiled.recognize("summer"));
+        Assert.assertFalse(compiled.recognize("m"));
+    }
+}
@@ -0,0 +1,88 @@
+package expr;
+
+import dfa.CompiledDFA;
+import match.BatchRecognizer;
+import match.Recognizer;
+import nfa.CompactNFA;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test batch recognition with {@link BatchRecognizer}.
+ */
+public class BatchRecognizerTest {
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static List<String> randomStrings(int n) {
+        Random random = new Random(42);
+        List<String> strings = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(8); j > 0; --j)
+                sb.append("abc".charAt(random.nextInt(3)));
+            strings.add(sb.toString());
+        }
+        return strings;
+    }
+
+    @Test
+    public void batchTest1_sequentialAndParallel() {
+        // (a|b)*c
+        NFA nfa = Expr.concat(Expr.star(Expr.or(Expr.ch('a'), Expr.ch('b'))), Expr.ch('c')).compile();
+        CompiledDFA dfa = NFAOperations.determinize(nfa).compile();
+        CompactNFA compactNFA = new CompactNFA(nfa);
+
+        List<String> strings = randomStrings(10000);
+        BitSet expected = new BitSet();
+        for (int i = 0; i < strings.size(); ++i)
+            if (dfa.recognize(strings.get(i)))
+                expected.set(i);
+        Assert.assertFalse(expected.isEmpty());
+
+        for (Recognizer recognizer : new Recognizer[]{dfa, compactNFA}) {
+            BatchRecognizer batch = new BatchRecognizer(recognizer, pool, 100);
+            Assert.assertEquals(expected, batch.recognizeAll(strings));
+            Assert.assertEquals(expected, batch.recognizeAllParallel(strings));
+            Assert.assertEquals(expected, batch.recognizeAllParallel(new LinkedList<>(strings)));
+        }
+    }
+
+    @Test
+    public void batchTest2_small() {
+        CompiledDFA dfa = NFAOperations.determinize(Expr.str("ab").compile()).compile();
+        BatchRecognizer batch = new BatchRecognizer(dfa, pool, 1);
+
+        Assert.assertEquals(new BitSet(), batch.recognizeAllParallel(Collections.<String>emptyList()));
+
+        BitSet expected = new BitSet();
+        expected.set(1);
+        expected.set(66);
+        List<String> strings = new ArrayList<>(Collections.nCopies(100, "a"));
+        strings.set(1, "ab");
+        strings.set(66, "ab");
+        Assert.assertEquals(expected, batch.recognizeAll(strings));
+        Assert.assertEquals(expected, batch.recognizeAllParallel(strings));
+    }
+}
@@ -0,0 +1,79 @@
+package expr;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import nfa.LazyDFA;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test character ranges and classes through compilation, determinization, minimization
+ * and recognition.
+ */
+public class CharClassTest {
+    private static void assertAllRecognize(Expression expr, boolean expected, String... strings) {
+        NFA nfa = expr.compile();
+        DFA dfa = NFAOperations.determinize(nfa);
+        DFA minDFA = NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+        CompiledDFA compiled = minDFA.compile();
+        LazyDFA lazy = new LazyDFA(nfa);
+
+        for (String s : strings) {
+            Assert.assertEquals(s, expected, nfa.recognize(s));
+            Assert.assertEquals(s, expected, dfa.recognize(s));
+            Assert.assertEquals(s, expected, minDFA.recognize(s));
+            Assert.assertEquals(s, expected, compiled.recognize(s));
+            Assert.assertEquals(s, expected, lazy.recognize(s));
+        }
+    }
+
+    @Test
+    public void charClassTest1_identifier() {
+        // [a-zA-Z_][a-zA-Z0-9_]*
+        Expression first = Expr.or(Expr.or(Expr.range('a', 'z'), Expr.range('A', 'Z')), Expr.ch('_'));
+        Expression rest = Expr.or(first, Expr.range('0', '9'));
+        Expression expr = Expr.concat(first, Expr.star(rest));
+
+        assertAllRecognize(expr, true, "a", "_", "camelCase", "snake_case_9", "Z0");
+        assertAllRecognize(expr, false, "", "9lives", "with space", "dash-ed", "ü");
+
+        DFA minDFA = NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT);
+        Assert.assertEquals(2, minDFA.getStates().size());
+    }
+
+    @Test
+    public void charClassTest2_overlapping() {
+        // [a-m]x|[h-z]y|hz
+        Expression expr = Expr.or(Expr.or(Expr.concat(Expr.range('a', 'm'), Expr.ch('x')),
+                Expr.concat(Expr.range('h', 'z'), Expr.ch('y'))), Expr.str("hz"));
+
+        assertAllRecognize(expr, true, "ax", "hx", "mx", "hy", "zy", "hz");
+        assertAllRecognize(expr, false, "ay", "nx", "az", "iz", "h", "");
+    }
+
+    @Test
+    public void charClassTest3_any() {
+        // .*!.
+        Expression expr = Expr.concat(Expr.concat(Expr.star(Expr.any()), Expr.ch('!')), Expr.any());
+
+        assertAllRecognize(expr, true, "!!", "hello!?", "￿!\u0000", "!世");
+        assertAllRecognize(expr, false, "", "!", "hello", "hello!");
+
+        // the states remember whether the last character was a '!', and whether we saw "!."
+        DFA minDFA = NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT);
+        Assert.assertEquals(4, minDFA.getStates().size());
+    }
+
+    @Test
+    public void charClassTest4_anyOf() {
+        // [aeiou]+
+        Expression expr = Expr.plus(Expr.anyOf('u', 'a', 'e', 'i', 'o', 'a'));
+        Assert.assertEquals("[aeiou]([aeiou])*", expr.toString());
+
+        assertAllRecognize(expr, true, "a", "aeiou", "ouiea");
+        assertAllRecognize(expr, false, "", "b", "aeb");
+    }
+}
@@ -0,0 +1,116 @@
+package expr;
+
+import dfa.DFA;
+import nfa.CompactNFA;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the compact NFA representation: recognition, determinization and reversal should
+ * agree with the object-graph automata.
+ */
+public class CompactNFATest {
+    @Test
+    public void compactTest1_recognize() {
+        //((ab|ac)d+)*
+        Expression expr = Expr.star(Expr.concat(Expr.or(Expr.str("ab"), Expr.str("ac")), Expr.plus(Expr.ch('d'))));
+        NFA nfa = expr.compile();
+        CompactNFA compact = new CompactNFA(nfa);
+//        System.out.println(compact.toDot());
+
+        String[] strings = {"", "abd", "acd", "abdabddabddd", "ab", "abcd!!", "acdabdac!"};
+        for (String s : strings)
+            Assert.assertEquals(s, nfa.recognize(s), compact.recognize(s));
+
+        Assert.assertEquals(nfa.getStates().size(), compact.getNumberOfStates());
+        Assert.assertTrue(compact.toNFA().recognize("abdacd"));
+    }
+
+    @Test
+    public void compactTest2_determinize() {
+        // a* b | b* a
+        Expression expr = Expr.or(Expr.concat(Expr.star(Expr.ch('a')), Expr.str("b")),
+                Expr.concat(Expr.star(Expr.ch('b')), Expr.str("a")));
+        DFA dfa = NFAOperations.determinize(new CompactNFA(expr.compile()));
+
+        Assert.assertTrue(dfa.recognize("aab"));
+        Assert.assertTrue(dfa.recognize("bba"));
+        Assert.assertFalse(dfa.recognize("abab"));
+    }
+
+    @Test
+    public void compactTest3_reversal() {
+        // baa*a! -> !aa*ab
+        Expression expr = Expr.concat(Expr.concat(Expr.str("ba"), Expr.star(Expr.ch('a'))), Expr.str("a!"));
+        CompactNFA rev = NFAOperations.reversal(new CompactNFA(expr.compile()));
+
+        Assert.assertTrue(rev.recognize("!aab"));
+        Assert.assertTrue(rev.recognize("!aaaaab"));
+
+        Assert.assertFalse(rev.recognize("baa!"));
+        Assert.assertFalse(rev.recognize("!ab"));
+        Assert.assertFalse(rev.recognize(""));
+    }
+
+    @Test
+    public void compactTest4_minimize() {
+        // a* b | b* a, Brzozowski relies on the reversal being exact
+        Expression expr = Expr.or(Expr.concat(Expr.star(Expr.ch('a')), Expr.str("b")),
+                Expr.concat(Expr.star(Expr.ch('b')), Expr.str("a")));
+        NFA nfa = expr.compile();
+        DFA dfa = NFAOperations.determinize(NFAOperations.reversalNFA(NFAOperations.reversalNFA(nfa)));
+
+        String[] strings = {"b", "ab", "a", "ba", "aab", "bba", "", "x", "abab", "baba", "aaaa"};
+        for (String s : strings)
+            Assert.assertEquals(s, nfa.recognize(s), dfa.recognize(s));
+    }
+
+    @Test
+    public void compactTest5_epsilonsLinear() {
+        // ((((a|b)c)*d)*e)*...: every star adds a constant number of states and transitions
+        int depth = 200;
+        Expression expr = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        StringBuilder valid = new StringBuilder("a");
+        for (int i = 0; i < depth; ++i) {
+            char c = (char) ('c' + i % 20);
+            expr = Expr.star(Expr.concat(expr, Expr.ch(c)));
+            valid.append(c);
+        }
+
+        CompactNFA compact = new CompactNFA(expr.compile());
+        Assert.assertTrue(compact.getNumberOfStates() <= 4 * depth + 4);
+        Assert.assertTrue(compact.getNumberOfTransitions() <= depth + 2);
+        Assert.assertTrue(compact.getNumberOfEpsilons() <= 4 * depth + 2);
+
+        Glushkov glushkov = new Glushkov(expr);
+        String[] strings = {"", valid.toString(), valid.substring(0, depth), "b" + valid.substring(1),
+                valid.toString() + valid.substring(1), "a" + valid.substring(2)};
+        for (String s : strings)
+            Assert.assertEquals(s, glushkov.recognize(s), compact.recognize(s));
+        Assert.assertTrue(compact.recognize(valid));
+        Assert.assertEquals(0, compact.getClosure(0)[0]);
+    }
+
+    @Test
+    public void compactTest6_largeUnion() {
+        // w0|w1|...|w49999: the closure of the start state contains every word, but the
+        // closures are not stored per state
+        int nWords = 50000;
+        Expression expr = Expr.str("w0");
+        for (int i = 1; i < nWords; ++i)
+            expr = Expr.or(expr, Expr.str("w" + i));
+
+        NFA nfa = expr.compile();
+        Assert.assertTrue(nfa.recognize("w31415"));
+
+        CompactNFA compact = new CompactNFA(nfa);
+        Assert.assertTrue(compact.recognize("w0"));
+        Assert.assertTrue(compact.recognize("w49999"));
+        Assert.assertTrue(compact.recognize("w12345"));
+        Assert.assertFalse(compact.recognize("w50000"));
+        Assert.assertFalse(compact.recognize("w"));
+        Assert.assertEquals(nWords + 1, compact.getClosure(0).length);
+    }
+}
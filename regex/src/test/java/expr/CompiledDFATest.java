@@ -0,0 +1,62 @@
+package expr;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check that the table-driven automaton recognizes the same strings as the DFA it was
+ * compiled from.
+ */
+public class CompiledDFATest {
+    private static void assertSameLanguage(Expression expr, String... strings) {
+        DFA dfa = NFAOperations.determinize(expr.compile());
+        CompiledDFA compiled = dfa.compile();
+
+        for (String s : strings)
+            Assert.assertEquals(s, dfa.recognize(s), compiled.recognize(s));
+    }
+
+    @Test
+    public void compiledTest1_simple() {
+        Expression expr = Expr.str("abcd");
+        CompiledDFA compiled = NFAOperations.determinize(expr.compile()).compile();
+
+        Assert.assertTrue(compiled.recognize("abcd"));
+
+        Assert.assertFalse(compiled.recognize(""));
+        Assert.assertFalse(compiled.recognize("abc"));
+        Assert.assertFalse(compiled.recognize("abcde"));
+        Assert.assertFalse(compiled.recognize("ébcd"));
+    }
+
+    @Test
+    public void compiledTest2_superCombo() {
+        //((ab|ac)d+)*
+        Expression expr = Expr.star(Expr.concat(Expr.or(Expr.str("ab"), Expr.str("ac")), Expr.plus(Expr.ch('d'))));
+        assertSameLanguage(expr, "", "abd", "acd", "abdabddabddd", "abdacdabddacddacddddddddddd",
+                "ab", "abcd!!", "acdabdac!");
+    }
+
+    @Test
+    public void compiledTest3_sheepLanguage() {
+        // b a a* a !
+        Expression expr = Expr.concat(Expr.concat(Expr.str("ba"), Expr.star(Expr.ch('a'))), Expr.str("a!"));
+        assertSameLanguage(expr, "baaa!", "baaaaaaaaa!", "baa!", "baa", "baaa!!", "aaa!", "");
+    }
+
+    @Test
+    public void compiledTest4_comboStarOr() {
+        //a* b | b* a
+        Expression expr = Expr.or(Expr.concat(Expr.star(Expr.ch('a')), Expr.str("b")),
+                Expr.concat(Expr.star(Expr.ch('b')), Expr.str("a")));
+        CompiledDFA compiled = NFAOperations.determinize(expr.compile()).compile();
+
+        Assert.assertTrue(compiled.recognize("aaaab"));
+        Assert.assertTrue(compiled.recognize("bbba"));
+        Assert.assertFalse(compiled.recognize("abab"));
+        Assert.assertFalse(compiled.recognize(""));
+    }
+}
@@ -1,10 +1,15 @@
 package expr;
 
 import dfa.DFA;
+import dfa.DFAOperations;
+import nfa.CompactNFA;
 import nfa.NFA;
 import nfa.NFAOperations;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * @author Tim Day
  * @date 17.12.2017
@@ -96,4 +101,46 @@ public class DeterminizerTest {
         System.out.println(dfa.toDot());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void determinizeTest_blowup() {
+        // (a|b)*a(a|b)^n: the DFA has to remember the last n+1 characters
+        int n = 14;
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.star(ab), Expr.ch('a'));
+        for (int i = 0; i < n; ++i)
+            expr = Expr.concat(expr, ab);
+
+        DFA dfa = NFAOperations.determinize(expr.compile());
+        Assert.assertTrue(dfa.getStates().size() >= 1 << (n + 1));
+
+        Assert.assertTrue(dfa.recognize("bbbabbbbbbbbbbbbbb"));
+        Assert.assertFalse(dfa.recognize("bbbbabbbbbbbbbbbbb"));
+    }
+
+    @Test
+    public void determinizeTest_parallel() {
+        // (a|b)*a(a|b)^n, determinized on a pool with several threads
+        int n = 12;
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.star(ab), Expr.ch('a'));
+        for (int i = 0; i < n; ++i)
+            expr = Expr.concat(expr, ab);
+        NFA nfa = expr.compile();
+
+        DFA sequential = NFAOperations.determinize(nfa);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DFA parallel = NFAOperations.determinizeParallel(new CompactNFA(nfa), pool);
+            Assert.assertEquals(sequential.getStates().size(), parallel.getStates().size());
+            Assert.assertEquals(sequential.getAcceptStates().size(), parallel.getAcceptStates().size());
+            Assert.assertEquals(DFAOperations.minimize(sequential).getStates().size(),
+                    DFAOperations.minimize(parallel).getStates().size());
+        } finally {
+            pool.shutdown();
+        }
+
+        DFA parallel = NFAOperations.determinizeParallel(nfa);
+        Assert.assertTrue(parallel.recognize("bbbabbbbbbbbbbbb"));
+        Assert.assertFalse(parallel.recognize("bbbbabbbbbbbbbbb"));
+    }
+}
@@ -0,0 +1,131 @@
+package expr;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import match.FileScanner;
+import nfa.MinimizationAlgorithm;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test scanning the lines of memory-mapped files with {@link FileScanner}.
+ */
+public class FileScannerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // ERROR [0-9]+
+    private static CompiledDFA errorLine() {
+        Expression expr = Expr.concat(Expr.str("ERROR "), Expr.plus(Expr.range('0', '9')));
+        return NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT).compile();
+    }
+
+    private Path write(String contents) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, contents.getBytes(StandardCharsets.ISO_8859_1));
+        return path;
+    }
+
+    @Test
+    public void fileScannerTest1_lines() throws IOException {
+        Path path = write("INFO 1\nERROR 42\r\nERROR x\n\nERROR 7");
+
+        FileScanner scanner = new FileScanner(errorLine());
+        Assert.assertEquals(2, scanner.count(path));
+        Assert.assertArrayEquals(new long[]{7, 26}, scanner.matchingLines(path));
+    }
+
+    @Test
+    public void fileScannerTest2_empty() throws IOException {
+        Path path = write("");
+
+        FileScanner scanner = new FileScanner(errorLine());
+        Assert.assertEquals(0, scanner.count(path));
+        Assert.assertArrayEquals(new long[0], scanner.matchingLines(path));
+    }
+
+    @Test
+    public void fileScannerTest3_chunks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            if (i % 3 == 0) {
+                expected.add((long) sb.length());
+                sb.append("ERROR ").append(i).append('\n');
+            } else
+                sb.append("WARN ").append(i).append('\n');
+        }
+        Path path = write(sb.toString());
+
+        // small chunks, so that the file is split many times.
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileScanner scanner = new FileScanner(errorLine(), pool, 100);
+            long[] lines = scanner.matchingLines(path);
+
+            Assert.assertEquals(expected.size(), scanner.count(path));
+            Assert.assertEquals(expected.size(), lines.length);
+            for (int i = 0; i < lines.length; ++i)
+                Assert.assertEquals((long) expected.get(i), lines[i]);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void fileScannerTest4_latin1() throws IOException {
+        // caf[é]
+        CompiledDFA dfa = NFAOperations.determinize(Expr.concat(Expr.str("caf"), Expr.ch('é')).compile()).compile();
+        Path path = write("café\ncafe\n");
+
+        Assert.assertArrayEquals(new long[]{0}, new FileScanner(dfa).matchingLines(path));
+    }
+
+    @Test
+    public void fileScannerTest5_utf8() throws IOException {
+        // caf\u00e9 and a.b, in a UTF-8 file where \u00e9 is two bytes
+        Path path = folder.newFile().toPath();
+        Files.write(path, "caf\u00e9\ncafe\na\u00e9b\na\u4e2db\naxyb\n".getBytes(StandardCharsets.UTF_8));
+
+        DFA cafe = NFAOperations.determinize(Expr.str("caf\u00e9").compile());
+        Assert.assertArrayEquals(new long[]{0}, new FileScanner(cafe.compileUtf8()).matchingLines(path));
+
+        DFA any = NFAOperations.determinize(Expr.concat(Expr.concat(Expr.ch('a'), Expr.any()), Expr.ch('b')).compile());
+        Assert.assertArrayEquals(new long[]{11, 16}, new FileScanner(any.compileUtf8()).matchingLines(path));
+    }
+
+    @Test
+    public void fileScannerTest6_longLines() throws IOException {
+        // lines that are longer than the chunk size, so that they are scanned in windows.
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < 1000; ++i)
+            digits.append(i % 10);
+        String error = "ERROR " + digits;
+        String warn = "WARN " + digits;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileScanner scanner = new FileScanner(errorLine(), pool, 100);
+            Assert.assertArrayEquals(new long[]{0}, scanner.matchingLines(write(error)));
+            Assert.assertArrayEquals(new long[0], scanner.matchingLines(write(warn)));
+            Assert.assertArrayEquals(new long[]{0}, scanner.matchingLines(write(error + "\r\n")));
+
+            // the only line terminators are in the first half of the file.
+            String text = "ERROR 1\n" + warn + "\n" + error;
+            Assert.assertArrayEquals(new long[]{0, 8 + warn.length() + 1}, scanner.matchingLines(write(text)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
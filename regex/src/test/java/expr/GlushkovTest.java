@@ -0,0 +1,98 @@
+package expr;
+
+import dfa.CompiledDFA;
+import match.Recognizer;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Test bit-parallel recognition with {@link Glushkov} and engine selection.
+ */
+public class GlushkovTest {
+    private static void assertSameAsDFA(Expression expr, String chars, int maxLength) {
+        CompiledDFA dfa = NFAOperations.determinize(expr.compile()).compile();
+        Glushkov glushkov = new Glushkov(expr);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; ++i) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(maxLength + 1); j > 0; --j)
+                sb.append(chars.charAt(random.nextInt(chars.length())));
+            String s = sb.toString();
+            Assert.assertEquals(s, dfa.recognize(s), glushkov.recognize(s));
+        }
+    }
+
+    @Test
+    public void glushkovTest1_small() {
+        // (a|b)*abb
+        Expression expr = Expr.concat(Expr.star(Expr.or(Expr.ch('a'), Expr.ch('b'))), Expr.str("abb"));
+        Glushkov glushkov = new Glushkov(expr);
+
+        Assert.assertEquals(5, glushkov.getNumberOfPositions());
+        Assert.assertTrue(glushkov.recognize("abb"));
+        Assert.assertTrue(glushkov.recognize("babaabb"));
+        Assert.assertFalse(glushkov.recognize("abba"));
+        Assert.assertFalse(glushkov.recognize(""));
+        assertSameAsDFA(expr, "abc", 10);
+    }
+
+    @Test
+    public void glushkovTest2_nullable() {
+        // (a*b*)*|c
+        Expression expr = Expr.or(Expr.star(Expr.concat(Expr.star(Expr.ch('a')), Expr.star(Expr.ch('b')))),
+                Expr.ch('c'));
+        Glushkov glushkov = new Glushkov(expr);
+
+        Assert.assertTrue(glushkov.recognize(""));
+        Assert.assertTrue(glushkov.recognize("c"));
+        Assert.assertTrue(glushkov.recognize("abba"));
+        Assert.assertFalse(glushkov.recognize("cc"));
+        assertSameAsDFA(expr, "abc", 8);
+    }
+
+    @Test
+    public void glushkovTest3_multiWord() {
+        // ([a-c]x|y)* followed by 150 characters: several words of state
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 150; ++i)
+            sb.append((char) ('a' + i % 3));
+        Expression expr = Expr.concat(Expr.star(Expr.or(Expr.concat(Expr.range('a', 'c'), Expr.ch('x')),
+                Expr.ch('y'))), Expr.str(sb.toString()));
+        Glushkov glushkov = new Glushkov(expr);
+
+        Assert.assertEquals(153, glushkov.getNumberOfPositions());
+        Assert.assertTrue(glushkov.recognize(sb.toString()));
+        Assert.assertTrue(glushkov.recognize("axycx" + sb));
+        Assert.assertFalse(glushkov.recognize("axyc" + sb));
+        Assert.assertFalse(glushkov.recognize(sb.substring(1)));
+    }
+
+    @Test
+    public void glushkovTest4_selection() {
+        Expression small = Expr.concat(Expr.star(Expr.any()), Expr.str("needle"));
+        Assert.assertTrue(Glushkov.fits(small));
+        Assert.assertEquals(Engine.GLUSHKOV, Engine.select(small));
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 300; ++i)
+            sb.append('z');
+        Expression large = Expr.str(sb.toString());
+        Assert.assertFalse(Glushkov.fits(large));
+        Assert.assertEquals(Engine.LAZY_DFA, Engine.select(large));
+
+        for (Expression expr : new Expression[]{small, large}) {
+            Recognizer recognizer = Engine.recognizer(expr);
+            for (Engine engine : Engine.values()) {
+                if (engine == Engine.GLUSHKOV && !Glushkov.fits(expr))
+                    continue;
+                Recognizer other = engine.compile(expr);
+                for (String s : new String[]{"needle", "a haystack with a needle", "needles", sb.toString(), ""})
+                    Assert.assertEquals(engine + " " + s, recognizer.recognize(s), other.recognize(s));
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package expr;
+
+import dfa.DFA;
+import dfa.DFAOperations;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test minimization with Hopcroft's algorithm: the minimized automaton should recognize
+ * the same strings and have the minimal number of states.
+ */
+public class HopcroftTest {
+    private static void assertMinimal(Expression expr, int nStates, String... strings) {
+        NFA nfa = expr.compile();
+        DFA minDFA = NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+//        System.out.println(minDFA.toDot());
+
+        Assert.assertEquals(nStates, minDFA.getStates().size());
+        for (String s : strings)
+            Assert.assertEquals(s, nfa.recognize(s), minDFA.recognize(s));
+    }
+
+    @Test
+    public void hopcroftTest1_or() {
+        //(xb|xx|xa|xcw)
+        Expression expr = Expr.or(Expr.or(Expr.str("xb"), Expr.str("xx")), Expr.or(Expr.str("xa"), Expr.str("xcw")));
+        assertMinimal(expr, 4, "xb", "xx", "xa", "xcw", "xc", "x", "", "xcwx");
+    }
+
+    @Test
+    public void hopcroftTest2_star() {
+        // a*
+        assertMinimal(Expr.star(Expr.ch('a')), 1, "", "a", "aaaa", "b", "aab");
+    }
+
+    @Test
+    public void hopcroftTest3_comboStarOr() {
+        //a* b | b* a
+        Expression expr = Expr.or(Expr.concat(Expr.star(Expr.ch('a')), Expr.str("b")),
+                Expr.concat(Expr.star(Expr.ch('b')), Expr.str("a")));
+        assertMinimal(expr, 6, "b", "ab", "a", "ba", "aab", "bba", "", "x", "abab", "baba");
+    }
+
+    @Test
+    public void hopcroftTest4_superCombo() {
+        //((ab|ac)d+)*
+        Expression expr = Expr.star(Expr.concat(Expr.or(Expr.str("ab"), Expr.str("ac")), Expr.plus(Expr.ch('d'))));
+        assertMinimal(expr, 4, "", "abd", "acd", "abdabddabddd", "ab", "abcd!!", "acdabdac!");
+    }
+
+    @Test
+    public void hopcroftTest5_blowup() {
+        // (a|b)*a(a|b)^n: the minimal DFA has 2^(n+1) states
+        int n = 6;
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.star(ab), Expr.ch('a'));
+        for (int i = 0; i < n; ++i)
+            expr = Expr.concat(expr, ab);
+
+        assertMinimal(expr, 1 << (n + 1), "abbbbbb", "babababab", "bbbbbbb", "");
+    }
+
+    @Test
+    public void hopcroftTest6_dfa() {
+        // ab, minimizing a DFA directly
+        DFA minDFA = DFAOperations.minimize(NFAOperations.determinize(Expr.str("ab").compile()));
+        Assert.assertEquals(3, minDFA.getStates().size());
+        Assert.assertTrue(minDFA.recognize("ab"));
+        Assert.assertFalse(minDFA.recognize("a"));
+    }
+}
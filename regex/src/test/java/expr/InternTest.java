@@ -0,0 +1,53 @@
+package expr;
+
+import match.Recognizer;
+import nfa.CompactNFA;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test structural equality and sharing of expressions.
+ */
+public class InternTest {
+    @Test
+    public void internTest1_shared() {
+        Expression expr = Expr.or(Expr.str("abc"), Expr.star(Expr.range('0', '9')));
+        Expression expr2 = Expr.or(Expr.str("abc"), Expr.star(Expr.range('0', '9')));
+
+        Assert.assertSame(expr, expr2);
+        Assert.assertSame(Expr.parse("(ab)+"), Expr.plus(Expr.str("ab")));
+        Assert.assertSame(Expr.anyOf('c', 'a', 'b'), Expr.range('a', 'c'));
+        Assert.assertNotSame(Expr.concat(Expr.ch('a'), Expr.ch('b')), Expr.or(Expr.ch('a'), Expr.ch('b')));
+        Assert.assertEquals(Expr.str("ab").hashCode(), Expr.concat(Expr.ch('a'), Expr.ch('b')).hashCode());
+    }
+
+    @Test
+    public void internTest2_plusCompiledOnce() {
+        // ((((abc)+)+)+...)+ is as large as abc, it would double with every plus as e(e)*.
+        Expression expr = Expr.str("abc");
+        CompactNFA base = new CompactNFA(expr.compile());
+        for (int i = 0; i < 40; ++i)
+            expr = Expr.plus(expr);
+
+        CompactNFA nested = new CompactNFA(expr.compile());
+        Assert.assertEquals(base.getNumberOfStates(), nested.getNumberOfStates());
+        Assert.assertEquals(base.getNumberOfTransitions(), nested.getNumberOfTransitions());
+
+        Assert.assertTrue(nested.recognize("abcabc"));
+        Assert.assertFalse(nested.recognize(""));
+        Assert.assertFalse(nested.recognize("abcab"));
+        Assert.assertTrue(Glushkov.fits(expr));
+        Assert.assertTrue(new Glushkov(expr).recognize("abc"));
+        Assert.assertFalse(new Glushkov(expr).recognize(""));
+    }
+
+    @Test
+    public void internTest3_compiledOnce() {
+        PatternCache cache = new PatternCache(PatternCache.DEFAULT_MAX_WEIGHT);
+
+        Recognizer recognizer = cache.get(Expr.parse("(a|b)*c"), Engine.COMPILED_DFA);
+        Assert.assertSame(recognizer, cache.get(Expr.concat(Expr.star(Expr.or(Expr.ch('a'), Expr.ch('b'))),
+                Expr.ch('c')), Engine.COMPILED_DFA));
+        Assert.assertEquals(1, cache.stats().loadCount());
+    }
+}
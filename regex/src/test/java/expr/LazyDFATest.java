@@ -0,0 +1,86 @@
+package expr;
+
+import nfa.LazyDFA;
+import nfa.NFA;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the lazily determinized automaton, including the case where the state cache is
+ * too small and recognition falls back to NFA simulation.
+ */
+public class LazyDFATest {
+    @Test
+    public void lazyTest1_superCombo() {
+        //((ab|ac)d+)*
+        Expression expr = Expr.star(Expr.concat(Expr.or(Expr.str("ab"), Expr.str("ac")), Expr.plus(Expr.ch('d'))));
+        LazyDFA dfa = new LazyDFA(expr.compile());
+
+        Assert.assertTrue(dfa.recognize(""));
+        Assert.assertTrue(dfa.recognize("abd"));
+        Assert.assertTrue(dfa.recognize("abdacdabddacddacddddddddddd"));
+
+        Assert.assertFalse(dfa.recognize("ab"));
+        Assert.assertFalse(dfa.recognize("abcd!!"));
+        Assert.assertFalse(dfa.recognize("acdabdac!"));
+
+        // The second time around, all transitions are cached.
+        long misses = dfa.getCacheMisses();
+        Assert.assertTrue(dfa.recognize("abdacdabddacddacddddddddddd"));
+        Assert.assertEquals(misses, dfa.getCacheMisses());
+        Assert.assertTrue(dfa.getCacheHits() > 0);
+        Assert.assertEquals(0, dfa.getCacheFlushes());
+    }
+
+    @Test
+    public void lazyTest2_smallCache() {
+        // (a|b)*a(a|b)(a|b)(a|b): the DFA has 16 states
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.concat(Expr.star(ab), Expr.ch('a')),
+                Expr.concat(ab, Expr.concat(ab, ab)));
+        NFA nfa = expr.compile();
+        LazyDFA dfa = new LazyDFA(nfa, 2);
+
+        String[] strings = {"abbb", "bbbbabab", "abababababbbbaaba", "bbbb", "abababababbbbbaba", "aaaaaaaaaabbb"};
+        for (String s : strings)
+            Assert.assertEquals(s, nfa.recognize(s), dfa.recognize(s));
+
+        Assert.assertTrue(dfa.getCacheFlushes() > 0);
+        Assert.assertTrue(dfa.getNFAFallbacks() > 0);
+        Assert.assertTrue(dfa.getCachedStates() <= 2);
+    }
+
+    @Test
+    public void lazyTest3_cacheBound() {
+        // (a|b)*a(a|b)(a|b)(a|b), with a cache of one state
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.concat(Expr.star(ab), Expr.ch('a')),
+                Expr.concat(ab, Expr.concat(ab, ab)));
+        NFA nfa = expr.compile();
+        LazyDFA dfa = new LazyDFA(nfa, 1);
+
+        String[] strings = {"abbb", "bbbbabab", "abababababbbbaaba", "bbbb", "", "a"};
+        for (String s : strings) {
+            Assert.assertEquals(s, nfa.recognize(s), dfa.recognize(s));
+            Assert.assertTrue(dfa.getCachedStates() <= 1);
+        }
+    }
+
+    @Test
+    public void lazyTest4_thrashingShortInputs() {
+        // many short inputs that each need more states than the cache holds.
+        Expression ab = Expr.or(Expr.ch('a'), Expr.ch('b'));
+        Expression expr = Expr.concat(Expr.concat(Expr.star(ab), Expr.ch('a')),
+                Expr.concat(ab, Expr.concat(ab, ab)));
+        NFA nfa = expr.compile();
+        LazyDFA dfa = new LazyDFA(nfa, 4);
+
+        String[] strings = {"abab", "bbaa", "aabb", "baba", "abba", "baab"};
+        for (int i = 0; i < 100; ++i)
+            for (String s : strings)
+                Assert.assertEquals(s, nfa.recognize(s), dfa.recognize(s));
+
+        Assert.assertTrue(dfa.getNFAFallbacks() > 0);
+        Assert.assertTrue(dfa.getCacheFlushes() < 600);
+    }
+}
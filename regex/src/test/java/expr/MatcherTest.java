@@ -0,0 +1,119 @@
+package expr;
+
+import alphabet.CharRange;
+import dfa.CompiledDFA;
+import dfa.DFA;
+import dfa.DFAState;
+import match.Matcher;
+import nfa.NFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Test streaming recognition with {@link Matcher}.
+ */
+public class MatcherTest {
+    private static Matcher[] matchers(Expression expr) {
+        NFA nfa = expr.compile();
+        DFA dfa = NFAOperations.determinize(nfa);
+        return new Matcher[]{nfa.matcher(), dfa.matcher(), dfa.compile().matcher()};
+    }
+
+    @Test
+    public void matcherTest1_chunks() {
+        // (ab)*c
+        for (Matcher matcher : matchers(Expr.concat(Expr.star(Expr.str("ab")), Expr.ch('c')))) {
+            char[] chunk = "xxabab".toCharArray();
+            matcher.feed(chunk, 2, 3);
+            Assert.assertFalse(matcher.isAcceptingNow());
+            matcher.feed(chunk, 5, 1);
+            matcher.feed(chunk, 0, 0);
+            matcher.feed(CharBuffer.wrap("ab"));
+            Assert.assertFalse(matcher.isAcceptingNow());
+            matcher.feed(CharBuffer.wrap("c"));
+            Assert.assertTrue(matcher.isAcceptingNow());
+            Assert.assertFalse(matcher.isDead());
+            Assert.assertTrue(matcher.finish());
+        }
+    }
+
+    @Test
+    public void matcherTest2_dead() {
+        for (Matcher matcher : matchers(Expr.str("abc"))) {
+            matcher.feed(CharBuffer.wrap("ax"));
+            Assert.assertTrue(matcher.isDead());
+
+            CharBuffer rest = CharBuffer.wrap("bc");
+            matcher.feed(rest);
+            Assert.assertFalse(rest.hasRemaining());
+            Assert.assertFalse(matcher.finish());
+        }
+    }
+
+    @Test
+    public void matcherTest3_directBuffer() {
+        // a*b over a buffer that is larger than the scratch array
+        for (Matcher matcher : matchers(Expr.concat(Expr.star(Expr.ch('a')), Expr.ch('b')))) {
+            CharBuffer buf = ByteBuffer.allocateDirect(2 * 10001).asCharBuffer();
+            for (int i = 0; i < 10000; ++i)
+                buf.put('a');
+            buf.put('b');
+            buf.flip();
+
+            Assert.assertFalse(buf.hasArray());
+            matcher.feed(buf);
+            Assert.assertEquals(buf.limit(), buf.position());
+            Assert.assertTrue(matcher.finish());
+        }
+    }
+
+    @Test
+    public void matcherTest4_largeInput() {
+        // .*x, fed in many chunks
+        for (Matcher matcher : matchers(Expr.concat(Expr.star(Expr.any()), Expr.ch('x')))) {
+            char[] chunk = new char[1024];
+            Arrays.fill(chunk, 'y');
+            for (int i = 0; i < 1000; ++i)
+                matcher.feed(chunk, 0, chunk.length);
+            Assert.assertFalse(matcher.isAcceptingNow());
+            matcher.feed(new char[]{'x'}, 0, 1);
+            Assert.assertTrue(matcher.finish());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void matcherTest5_feedAfterFinish() {
+        Matcher matcher = Expr.ch('a').compile().matcher();
+        matcher.finish();
+        matcher.feed(CharBuffer.wrap("a"));
+    }
+
+    @Test
+    public void matcherTest6_trapState() {
+        // ab, with an explicit trap state for all other strings
+        DFAState start = new DFAState(false);
+        DFAState a = new DFAState(false);
+        DFAState ab = new DFAState(true);
+        DFAState trap = new DFAState(false);
+        start.addTransition('a', a);
+        start.addTransition('b', trap);
+        a.addTransition('b', ab);
+        a.addTransition('a', trap);
+        trap.addTransition(CharRange.ANY, trap);
+
+        CompiledDFA compiled = new DFA(start).compile();
+        Matcher matcher = compiled.matcher();
+        matcher.feed(CharBuffer.wrap("aa"));
+        Assert.assertTrue(matcher.isDead());
+        Assert.assertFalse(compiled.isLive(compiled.step(compiled.getStartState(), 'b')));
+
+        matcher = compiled.matcher();
+        matcher.feed(CharBuffer.wrap("ab"));
+        Assert.assertTrue(matcher.finish());
+    }
+}
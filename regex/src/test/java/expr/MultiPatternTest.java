@@ -0,0 +1,101 @@
+package expr;
+
+import dfa.DFA;
+import dfa.DFAState;
+import nfa.MinimizationAlgorithm;
+import nfa.NFA;
+import nfa.NFABuilder;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test automata for several patterns, see {@link MultiPattern}.
+ */
+public class MultiPatternTest {
+    // 0: ab*, 1: a(b|c)*, 2: abc, 3: [0-9]+
+    private static List<Expression> patterns() {
+        return Arrays.asList(
+                Expr.concat(Expr.ch('a'), Expr.star(Expr.ch('b'))),
+                Expr.concat(Expr.ch('a'), Expr.star(Expr.or(Expr.ch('b'), Expr.ch('c')))),
+                Expr.str("abc"),
+                Expr.plus(Expr.range('0', '9')));
+    }
+
+    @Test
+    public void multiPatternTest1_match() {
+        MultiPattern multi = new MultiPattern(patterns());
+
+        Assert.assertEquals(4, multi.size());
+        Assert.assertArrayEquals(new int[]{0, 1}, multi.match("abb"));
+        Assert.assertArrayEquals(new int[]{1, 2}, multi.match("abc"));
+        Assert.assertArrayEquals(new int[]{1}, multi.match("acb"));
+        Assert.assertArrayEquals(new int[]{3}, multi.match("2017"));
+        Assert.assertArrayEquals(new int[0], multi.match("abc1"));
+        Assert.assertArrayEquals(new int[0], multi.match(""));
+    }
+
+    @Test
+    public void multiPatternTest2_find() {
+        MultiPattern multi = new MultiPattern(patterns());
+
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, multi.find("xxabcxx"));
+        Assert.assertArrayEquals(new int[]{0, 1, 3}, multi.find("a 1"));
+        Assert.assertArrayEquals(new int[0], multi.find("xyz"));
+    }
+
+    @Test
+    public void multiPatternTest3_minimizeKeepsPatterns() {
+        // a and b are equivalent as a language, but not as patterns.
+        NFA nfa = MultiPattern.compile(Arrays.asList(Expr.ch('a'), Expr.ch('b')));
+
+        DFA minDFA = NFAOperations.minimize(nfa, MinimizationAlgorithm.HOPCROFT);
+        Assert.assertEquals(3, minDFA.getStates().size());
+        Assert.assertArrayEquals(new int[]{0}, minDFA.compile().matchingPatterns("a"));
+        Assert.assertArrayEquals(new int[]{1}, minDFA.compile().matchingPatterns("b"));
+
+        DFA minLanguage = NFAOperations.minimize(Expr.or(Expr.ch('a'), Expr.ch('b')).compile(),
+                MinimizationAlgorithm.HOPCROFT);
+        Assert.assertEquals(2, minLanguage.getStates().size());
+
+        for (DFAState state : minDFA.getStates())
+            Assert.assertEquals(state.isAccept(), !state.getPatterns().isEmpty());
+    }
+
+    @Test
+    public void multiPatternTest4_manyPatterns() {
+        List<Expression> patterns = new ArrayList<>();
+        for (int i = 0; i < 500; ++i)
+            patterns.add(Expr.str("rule" + i));
+        MultiPattern multi = new MultiPattern(patterns);
+
+        Assert.assertArrayEquals(new int[]{42}, multi.match("rule42"));
+        Assert.assertArrayEquals(new int[]{1, 12, 123}, multi.find("see rule123."));
+    }
+
+    @Test
+    public void multiPatternTest5_concatenateTagged() {
+        // the accepting state of pattern 0 is no longer accepting after concatenation.
+        NFA nfa = NFAOperations.concatenate(MultiPattern.compile(Arrays.asList(Expr.ch('a'))),
+                NFAOperations.character('b'));
+        Assert.assertFalse(nfa.recognize("a"));
+        Assert.assertTrue(nfa.recognize("ab"));
+
+        DFA dfa = NFAOperations.determinize(nfa);
+        Assert.assertFalse(dfa.recognize("a"));
+        Assert.assertTrue(dfa.recognize("ab"));
+        Assert.assertArrayEquals(new int[0], dfa.compile().matchingPatterns("a"));
+        for (DFAState state : dfa.getStates())
+            Assert.assertTrue(state.isAccept() || state.getPatterns().isEmpty());
+
+        NFABuilder builder = new NFABuilder();
+        NFABuilder.Fragment tagged = builder.pattern(Expr.ch('a').compile(builder), 0);
+        NFA built = builder.build(builder.concatenate(tagged, Expr.ch('b').compile(builder)));
+        Assert.assertFalse(NFAOperations.determinize(built).recognize("a"));
+        Assert.assertFalse(NFAOperations.determinize(built.clone()).recognize("a"));
+    }
+}
@@ -0,0 +1,179 @@
+package expr;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import dfa.OffHeapDFA;
+import nfa.MinimizationAlgorithm;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Test {@link OffHeapDFA}.
+ */
+public class OffHeapDFATest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[] STRINGS = {"", "ab", "c\u00e9ab", "\u4e2d7", "\u4e2d", "abc", "\u4e2e1", "\uffff",
+            "ab\u4e2d0c\u00e9"};
+
+    private static DFA dfa() {
+        // (ab|c\u00e9|\u4e2d[0-9])+, with characters outside Latin-1
+        Expression expr = Expr.plus(Expr.or(Expr.or(Expr.str("ab"), Expr.str("c\u00e9")),
+                Expr.concat(Expr.ch('\u4e2d'), Expr.range('0', '9'))));
+        return NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT);
+    }
+
+    private static void assertSameLanguage(CompiledDFA compiled, OffHeapDFA offHeap) {
+        Assert.assertEquals(compiled.getNumberOfStates(), offHeap.getNumberOfStates());
+        Assert.assertEquals(compiled.getNumberOfClasses(), offHeap.getNumberOfClasses());
+
+        for (String s : STRINGS)
+            Assert.assertEquals(s, compiled.recognize(s), offHeap.recognize(s));
+        for (char c = 0; c < Character.MAX_VALUE; ++c)
+            Assert.assertEquals(compiled.classOf(c), offHeap.classOf(c));
+        for (int state = 0; state < compiled.getNumberOfStates(); ++state) {
+            Assert.assertEquals(compiled.isAccept(state), offHeap.isAccept(state));
+            for (char c : new char[]{'a', 'b', 'c', '\u00e9', '5', '\u4e2d', '\uffff'})
+                Assert.assertEquals(compiled.step(state, c), offHeap.step(state, c));
+        }
+    }
+
+    @Test
+    public void offHeapTest1_copy() {
+        CompiledDFA compiled = dfa().compile();
+        try (OffHeapDFA offHeap = OffHeapDFA.of(compiled)) {
+            assertSameLanguage(compiled, offHeap);
+            Assert.assertEquals(8 + 4L * compiled.getNumberOfStates() * compiled.getNumberOfClasses(),
+                    offHeap.getOffHeapSize());
+        }
+    }
+
+    @Test
+    public void offHeapTest2_load() throws IOException {
+        DFA dfa = dfa();
+        Path path = folder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(path)) {
+            dfa.writeTo(out);
+        }
+
+        try (OffHeapDFA offHeap = OffHeapDFA.load(path)) {
+            assertSameLanguage(dfa.compile(), offHeap);
+        }
+    }
+
+    @Test
+    public void offHeapTest3_corrupt() throws IOException {
+        Path path = folder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(path)) {
+            NFAOperations.determinize(Expr.parse("(a|b)*abb").compile()).writeTo(out);
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        for (int pos : new int[]{0, 4, 30, bytes.length - 1}) {
+            byte[] corrupt = bytes.clone();
+            corrupt[pos] ^= 0x10;
+            Files.write(path, corrupt);
+            try {
+                OffHeapDFA.load(path).close();
+                Assert.fail("Corruption at " + pos + " should be detected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        try {
+            OffHeapDFA.load(path).close();
+            Assert.fail("Truncation should be detected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // a transition to a non-existent state, with a valid checksum
+        byte[] invalid = bytes.clone();
+        ByteBuffer buf = ByteBuffer.wrap(invalid);
+        buf.putInt(24 + 8, buf.getInt(8));
+        CRC32 crc = new CRC32();
+        crc.update(invalid, 0, invalid.length - 4);
+        buf.putInt(invalid.length - 4, (int) crc.getValue());
+        Files.write(path, invalid);
+        try {
+            OffHeapDFA.load(path).close();
+            Assert.fail("Invalid transition should be detected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void offHeapTest4_close() {
+        OffHeapDFA offHeap = OffHeapDFA.of(NFAOperations.determinize(Expr.parse("a+b").compile()).compile());
+        Assert.assertTrue(offHeap.recognize("aab"));
+
+        offHeap.close();
+        Assert.assertTrue(offHeap.isClosed());
+        offHeap.close();
+
+        try {
+            offHeap.recognize("aab");
+            Assert.fail("A closed automaton should not be usable");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void offHeapTest5_concurrentClose() throws Exception {
+        final OffHeapDFA offHeap = OffHeapDFA.of(dfa().compile());
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; ++i)
+            sb.append("ab\u4e2d").append(i % 10);
+        final String input = sb.toString();
+
+        final AtomicInteger recognized = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            if (!offHeap.recognize(input))
+                                throw new AssertionError("Input should be recognized");
+                            recognized.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        while (recognized.get() < 10)
+            Thread.yield();
+        offHeap.close();
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(offHeap.isClosed());
+    }
+}
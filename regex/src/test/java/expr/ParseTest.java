@@ -0,0 +1,64 @@
+package expr;
+
+import match.Recognizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the textual syntax of expressions, see {@link Expr#parse(String)}.
+ */
+public class ParseTest {
+    private static void check(String pattern, String[] accepted, String[] rejected) {
+        Checker checker = new Checker(Expr.parse(pattern));
+        for (String s : accepted)
+            Assert.assertTrue(pattern + " should accept " + s, checker.recognize(s));
+        for (String s : rejected)
+            Assert.assertFalse(pattern + " should reject " + s, checker.recognize(s));
+    }
+
+    @Test
+    public void parseTest1_operators() {
+        check("ab|cd*", new String[]{"ab", "c", "cddd"}, new String[]{"", "abd", "d"});
+        check("(ab|c)+d", new String[]{"abd", "cabcd"}, new String[]{"d", "abab"});
+        check("a.c", new String[]{"abc", "a.c", "a c"}, new String[]{"ac", "abbc"});
+        check("((a))**", new String[]{"", "aaa"}, new String[]{"b"});
+    }
+
+    @Test
+    public void parseTest2_escapes() {
+        check("a\\*\\(\\|\\\\", new String[]{"a*(|\\"}, new String[]{"a", "aaa"});
+        check("\\.+\\t", new String[]{"..\t"}, new String[]{"ab\t", "."});
+    }
+
+    @Test
+    public void parseTest3_errors() {
+        String[] invalid = {"", "a|", "|a", "()", "(a", "a)", "*a", "a|+", "a\\", "\\q"};
+        for (String pattern : invalid) {
+            try {
+                Expr.parse(pattern);
+                Assert.fail("Pattern should be invalid: " + pattern);
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains(pattern));
+            }
+        }
+    }
+
+    /**
+     * Recognizes with the selected engine and with NFA simulation, which should agree.
+     */
+    private static final class Checker {
+        Checker(Expression expr) {
+            selected = Engine.recognizer(expr);
+            simulated = Engine.NFA_SIMULATION.compile(expr);
+        }
+
+        boolean recognize(String s) {
+            boolean result = simulated.recognize(s);
+            Assert.assertEquals(s, result, selected.recognize(s));
+            return result;
+        }
+
+        private final Recognizer selected;
+        private final Recognizer simulated;
+    }
+}
@@ -0,0 +1,88 @@
+package expr;
+
+import dfa.CompiledDFA;
+import match.Recognizer;
+import nfa.LazyDFA;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test the cache of compiled patterns, see {@link PatternCache}.
+ */
+public class PatternCacheTest {
+    @Test
+    public void cacheTest1_hits() {
+        PatternCache cache = new PatternCache(PatternCache.DEFAULT_MAX_WEIGHT);
+
+        Recognizer recognizer = cache.get("(ab|c)+", Engine.COMPILED_DFA);
+        Assert.assertTrue(recognizer instanceof CompiledDFA);
+        Assert.assertTrue(recognizer.recognize("abcab"));
+        Assert.assertSame(recognizer, cache.get("(ab|c)+", Engine.COMPILED_DFA));
+        Assert.assertNotSame(recognizer, cache.get("(ab|c)+"));
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.stats().hitCount());
+        Assert.assertEquals(2, cache.stats().missCount());
+    }
+
+    @Test
+    public void cacheTest2_lazyDFA() {
+        PatternCache cache = new PatternCache(PatternCache.DEFAULT_MAX_WEIGHT);
+
+        // lazy DFAs are not shared, but the NFA is compiled once.
+        Recognizer recognizer = cache.get("a*b", Engine.LAZY_DFA);
+        Assert.assertTrue(recognizer instanceof LazyDFA);
+        Assert.assertNotSame(recognizer, cache.get("a*b", Engine.LAZY_DFA));
+        Assert.assertTrue(recognizer.recognize("aab"));
+        Assert.assertEquals(1, cache.stats().loadCount());
+    }
+
+    @Test
+    public void cacheTest3_eviction() {
+        // a compiled DFA for abcd has 5 states and 5 classes (a, b, c, d and the rest).
+        PatternCache cache = new PatternCache(60);
+        for (char c = 'a'; c < 'k'; ++c)
+            cache.get(c + "bcd", Engine.COMPILED_DFA);
+
+        Assert.assertTrue(cache.size() < 10);
+        Assert.assertTrue(cache.stats().evictionCount() > 0);
+        Assert.assertTrue(cache.get("jbcd", Engine.COMPILED_DFA).recognize("jbcd"));
+    }
+
+    @Test
+    public void cacheTest4_singleFlight() throws Exception {
+        final PatternCache cache = new PatternCache(PatternCache.DEFAULT_MAX_WEIGHT);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Recognizer>> results = new ArrayList<>();
+            for (int i = 0; i < 32; ++i)
+                results.add(executor.submit(new Callable<Recognizer>() {
+                    @Override
+                    public Recognizer call() {
+                        return cache.get("(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)", Engine.COMPILED_DFA);
+                    }
+                }));
+
+            Recognizer first = results.get(0).get();
+            for (Future<Recognizer> result : results)
+                Assert.assertSame(first, result.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, cache.stats().loadCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cacheTest5_invalidPattern() {
+        PatternCache.shared().get("(a|b");
+    }
+}
@@ -1,6 +1,8 @@
 package expr;
 
+import nfa.CompactNFA;
 import nfa.NFA;
+import nfa.NFASimulator;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -164,4 +166,57 @@ public class RegonizeNFATest {
         Assert.assertFalse(nfa.recognize("abcd!!"));
         Assert.assertFalse(nfa.recognize("acdabdac!"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void recognizeTest10_ambiguous() {
+        // (a|a)* against long runs of a: every position doubles the number of paths
+        Expression expr = Expr.star(Expr.or(Expr.ch('a'), Expr.ch('a')));
+        NFASimulator simulator = new NFASimulator(expr.compile());
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; ++i)
+            sb.append('a');
+
+        Assert.assertTrue(simulator.recognize(sb));
+        Assert.assertTrue(simulator.recognize(""));
+
+        sb.append('b');
+        Assert.assertFalse(simulator.recognize(sb));
+        Assert.assertFalse(expr.compile().recognize(sb.toString()));
+    }
+
+    @Test
+    public void recognizeTest11_longLiteral() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; ++i)
+            sb.append((char) ('a' + i % 26));
+        String s = sb.toString();
+
+        NFA nfa = Expr.str(s).compile();
+
+        Assert.assertTrue(nfa.recognize(s));
+        Assert.assertFalse(nfa.recognize(s.substring(1)));
+        Assert.assertFalse(nfa.recognize(s + "a"));
+    }
+
+    @Test
+    public void recognizeTest12_largeUnion() {
+        // w0|w1|...|w999
+        Expression expr = Expr.str("w0");
+        int nChars = 2;
+        for (int i = 1; i < 1000; ++i) {
+            expr = Expr.or(expr, Expr.str("w" + i));
+            nChars += ("w" + i).length();
+        }
+        NFA nfa = Expr.plus(expr).compile();
+
+        // two states per character, and a single start state for all alternatives.
+        Assert.assertEquals(2 * nChars + 1, new CompactNFA(expr.compile()).getNumberOfStates());
+
+        Assert.assertTrue(nfa.recognize("w0"));
+        Assert.assertTrue(nfa.recognize("w999w17w0"));
+
+        Assert.assertFalse(nfa.recognize("w1000"));
+        Assert.assertFalse(nfa.recognize(""));
+    }
+}
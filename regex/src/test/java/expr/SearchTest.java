@@ -0,0 +1,149 @@
+package expr;
+
+import dfa.DFA;
+import dfa.Match;
+import dfa.MatchSemantics;
+import dfa.Searcher;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test unanchored search with {@link Searcher}.
+ */
+public class SearchTest {
+    private static Searcher searcher(Expression expr, MatchSemantics semantics) {
+        DFA dfa = NFAOperations.determinize(expr.compile());
+        return new Searcher(dfa, semantics);
+    }
+
+    @Test
+    public void searchTest1_literal() {
+        Searcher searcher = searcher(Expr.str("error"), MatchSemantics.LEFTMOST_LONGEST);
+
+        Assert.assertEquals(new Match(11, 16), searcher.find("2017-12-16 error: disk full"));
+        Assert.assertNull(searcher.find("2017-12-16 warning: disk almost full"));
+        Assert.assertNull(searcher.find(""));
+        Assert.assertEquals(Arrays.asList(new Match(0, 5), new Match(6, 11)), searcher.findAll("error error"));
+    }
+
+    @Test
+    public void searchTest2_leftmostLongest() {
+        // abcd|c: the leftmost match ends after the earliest match
+        Expression expr = Expr.or(Expr.str("abcd"), Expr.ch('c'));
+        Searcher searcher = searcher(expr, MatchSemantics.LEFTMOST_LONGEST);
+
+        Assert.assertEquals(new Match(1, 5), searcher.find("xabcdc"));
+        Assert.assertEquals(Arrays.asList(new Match(1, 5), new Match(5, 6)), searcher.findAll("xabcdc"));
+        Assert.assertEquals(Collections.singletonList(new Match(2, 3)), searcher.findAll("abcx"));
+    }
+
+    @Test
+    public void searchTest3_leftmostFirst() {
+        // a+
+        Expression expr = Expr.plus(Expr.ch('a'));
+
+        Searcher longest = searcher(expr, MatchSemantics.LEFTMOST_LONGEST);
+        Assert.assertEquals(new Match(1, 4), longest.find("baaab"));
+        Assert.assertEquals(Arrays.asList(new Match(1, 4), new Match(5, 6)), longest.findAll("baaaba"));
+
+        Searcher first = searcher(expr, MatchSemantics.LEFTMOST_FIRST);
+        Assert.assertEquals(new Match(1, 2), first.find("baaab"));
+        Assert.assertEquals(Arrays.asList(new Match(1, 2), new Match(2, 3), new Match(3, 4)),
+                first.findAll("baaab"));
+    }
+
+    @Test
+    public void searchTest4_emptyMatches() {
+        // a*
+        Searcher searcher = searcher(Expr.star(Expr.ch('a')), MatchSemantics.LEFTMOST_LONGEST);
+
+        Assert.assertEquals(new Match(0, 0), searcher.find("bab"));
+        Assert.assertEquals(new Match(1, 2), searcher.find("bab", 1));
+        Assert.assertEquals(new Match(0, 0), searcher.find(""));
+
+        List<Match> matches = searcher.findAll("baab");
+        // like java.util.regex, an empty match can directly follow a non-empty match
+        Assert.assertEquals(Arrays.asList(new Match(0, 0), new Match(1, 3), new Match(3, 3), new Match(4, 4)),
+                matches);
+    }
+
+    @Test
+    public void searchTest5_from() {
+        Searcher searcher = searcher(Expr.or(Expr.str("ab"), Expr.str("ba")), MatchSemantics.LEFTMOST_LONGEST);
+
+        Assert.assertEquals(new Match(0, 2), searcher.find("abab"));
+        Assert.assertEquals(new Match(1, 3), searcher.find("abab", 1));
+        Assert.assertNull(searcher.find("abab", 3));
+        Assert.assertEquals(Arrays.asList(new Match(0, 2), new Match(2, 4)), searcher.findAll("abab"));
+    }
+
+    @Test
+    public void searchTest6_longLine() {
+        // [0-9]+ms in a long log line
+        Expression expr = Expr.concat(Expr.plus(Expr.range('0', '9')), Expr.str("ms"));
+        Searcher searcher = searcher(expr, MatchSemantics.LEFTMOST_LONGEST);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; ++i)
+            sb.append("request took 12 s; ");
+        int start = sb.length() + "request took ".length();
+        sb.append("request took 345ms");
+
+        List<Match> matches = searcher.findAll(sb);
+        Assert.assertEquals(Collections.singletonList(new Match(start, start + 5)), matches);
+    }
+
+    @Test(timeout = 10000)
+    public void searchTest7_longTail() {
+        // c|c.*d in a long string without d: the longest match from every c has to be
+        // looked for up to the end of the string
+        Expression expr = Expr.or(Expr.ch('c'), Expr.concat(Expr.concat(Expr.ch('c'), Expr.star(Expr.any())),
+                Expr.ch('d')));
+        Searcher searcher = searcher(expr, MatchSemantics.LEFTMOST_LONGEST);
+
+        int n = 200000;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; ++i)
+            sb.append('c');
+
+        List<Match> matches = searcher.findAll(sb);
+        Assert.assertEquals(n, matches.size());
+        for (int i = 0; i < n; ++i)
+            Assert.assertEquals(new Match(i, i + 1), matches.get(i));
+
+        // with a d at the end, the first c matches up to the d
+        sb.append('d');
+        Assert.assertEquals(Collections.singletonList(new Match(0, n + 1)), searcher.findAll(sb));
+        sb.setCharAt(n / 2, 'd');
+        Assert.assertEquals(Arrays.asList(new Match(0, n + 1)), searcher.findAll(sb));
+        Assert.assertEquals(new Match(n / 2 + 1, n + 1), searcher.find(sb, n / 2 + 1));
+    }
+
+    @Test
+    public void searchTest8_mergedRuns() {
+        // (ab)*c|b: the runs from a and b merge into the same states
+        Expression expr = Expr.or(Expr.concat(Expr.star(Expr.str("ab")), Expr.ch('c')), Expr.ch('b'));
+        Searcher searcher = searcher(expr, MatchSemantics.LEFTMOST_LONGEST);
+
+        String[] strings = {"ababc", "abab", "xbabcb", "babab", "ccbc", ""};
+        for (String s : strings) {
+            // compare with finding the matches one by one
+            List<Match> expected = new ArrayList<>();
+            int pos = 0;
+            Match match;
+            while (pos <= s.length() && (match = searcher.find(s, pos)) != null) {
+                expected.add(match);
+                pos = match.getEnd() > match.getStart() ? match.getEnd() : match.getEnd() + 1;
+            }
+            Assert.assertEquals(s, expected, searcher.findAll(s));
+        }
+        Assert.assertEquals(Arrays.asList(new Match(1, 2), new Match(2, 5), new Match(5, 6)),
+                searcher.findAll("xbabcb"));
+    }
+}
@@ -0,0 +1,171 @@
+package expr;
+
+import dfa.CompiledDFA;
+import dfa.DFA;
+import dfa.DFAOperations;
+import dfa.MappedDFA;
+import nfa.MinimizationAlgorithm;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Test the binary format of automata, see {@link DFA#writeTo(OutputStream)} and {@link MappedDFA}.
+ */
+public class SerializationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(DFA dfa) throws IOException {
+        Path path = folder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(path)) {
+            dfa.writeTo(out);
+        }
+        return path;
+    }
+
+    @Test
+    public void serializationTest1_roundTrip() throws IOException {
+        // (ab|c\u00e9|\u4e2d[0-9])+, with characters outside Latin-1
+        Expression expr = Expr.plus(Expr.or(Expr.or(Expr.str("ab"), Expr.str("c\u00e9")),
+                Expr.concat(Expr.ch('\u4e2d'), Expr.range('0', '9'))));
+        DFA dfa = NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT);
+        CompiledDFA compiled = dfa.compile();
+
+        MappedDFA mapped = DFA.load(write(dfa));
+        Assert.assertEquals(compiled.getNumberOfStates(), mapped.getNumberOfStates());
+        Assert.assertEquals(compiled.getNumberOfClasses(), mapped.getNumberOfClasses());
+
+        String[] strings = {"", "ab", "c\u00e9ab", "\u4e2d7", "\u4e2d", "abc", "\u4e2e1", "\uffff", "ab\u4e2d0c\u00e9"};
+        for (String s : strings)
+            Assert.assertEquals(s, compiled.recognize(s), mapped.recognize(s));
+        for (char c = 0; c < Character.MAX_VALUE; ++c)
+            Assert.assertEquals(compiled.classOf(c), mapped.classOf(c));
+    }
+
+    @Test
+    public void serializationTest2_patterns() throws IOException {
+        List<Expression> patterns = Arrays.asList(Expr.parse("a(b|c)*"), Expr.parse("ab*"), Expr.parse("abc"));
+        MultiPattern multi = new MultiPattern(patterns);
+        DFA dfa = DFAOperations.minimize(NFAOperations.determinize(MultiPattern.compile(patterns)));
+
+        MappedDFA mapped = DFA.load(write(dfa));
+        Assert.assertArrayEquals(multi.match("abc"), mapped.matchingPatterns("abc"));
+        Assert.assertArrayEquals(new int[]{0, 1}, mapped.matchingPatterns("abb"));
+        Assert.assertArrayEquals(new int[0], mapped.matchingPatterns("b"));
+    }
+
+    @Test
+    public void serializationTest3_corrupt() throws IOException {
+        Path path = write(NFAOperations.determinize(Expr.parse("(a|b)*abb").compile()));
+        Assert.assertTrue(DFA.load(path).recognize("aabb"));
+
+        byte[] bytes = Files.readAllBytes(path);
+        for (int pos : new int[]{0, 4, 30, bytes.length - 1}) {
+            byte[] corrupt = bytes.clone();
+            corrupt[pos] ^= 0x10;
+            Files.write(path, corrupt);
+            try {
+                DFA.load(path, true);
+                Assert.fail("Corruption at " + pos + " should be detected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        try {
+            DFA.load(path, true);
+            Assert.fail("Truncation should be detected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Overwrite an int in an automaton file and fix the checksum.
+     */
+    private static void patch(Path path, byte[] bytes, int offset, int value) throws IOException {
+        byte[] patched = bytes.clone();
+        ByteBuffer buf = ByteBuffer.wrap(patched);
+        buf.putInt(offset, value);
+
+        CRC32 crc = new CRC32();
+        crc.update(patched, 0, patched.length - 4);
+        buf.putInt(patched.length - 4, (int) crc.getValue());
+        Files.write(path, patched);
+    }
+
+    @Test
+    public void serializationTest4_invalidContents() throws IOException {
+        Path path = write(NFAOperations.determinize(Expr.parse("(a|b)*abb").compile()));
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        int nStates = header.getInt(8);
+        int nClasses = header.getInt(12);
+        int transitions = 24 + 8 * ((nStates + 63) / 64);
+        int patternOffsets = transitions + 4 * nStates * nClasses;
+        int latin1 = patternOffsets + 4 * (nStates + 1) + 4 * header.getInt(20);
+
+        // a valid checksum is accepted
+        patch(path, bytes, transitions, 0);
+        Assert.assertTrue(DFA.load(path, true).recognize("abb"));
+
+        int[][] invalid = {{transitions, nStates}, {transitions, -2}, {patternOffsets, 1},
+                {latin1, nClasses << 16}};
+        for (int[] patch : invalid) {
+            patch(path, bytes, patch[0], patch[1]);
+            try {
+                DFA.load(path, true);
+                Assert.fail("Invalid value at " + patch[0] + " should be detected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void serializationTest5_unverified() throws IOException {
+        Path path = write(NFAOperations.determinize(Expr.parse("(a|b)*abb").compile()));
+        byte[] bytes = Files.readAllBytes(path);
+        int transitions = 24 + 8;
+
+        // without verification, the checksum is not read.
+        byte[] corrupt = bytes.clone();
+        corrupt[bytes.length - 1] ^= 0x10;
+        Files.write(path, corrupt);
+        Assert.assertTrue(DFA.load(path).recognize("aabb"));
+
+        // an invalid transition fails during recognition, and reads stay in bounds.
+        patch(path, bytes, transitions, Integer.MAX_VALUE);
+        MappedDFA mapped = DFA.load(path);
+        char c = 0;
+        while (mapped.classOf(c) != 0)
+            ++c;
+        try {
+            mapped.recognize(c + "ab");
+            Assert.fail("Invalid transition should fail during recognition");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        // verification fails at load time.
+        try {
+            DFA.load(path, true);
+            Assert.fail("Invalid transition should be detected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package expr;
+
+import dfa.CompiledDFA;
+import match.SpeculativeRecognizer;
+import nfa.MinimizationAlgorithm;
+import nfa.NFAOperations;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test speculative parallel recognition with {@link SpeculativeRecognizer}.
+ */
+public class SpeculativeRecognizerTest {
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static CompiledDFA compile(Expression expr) {
+        return NFAOperations.minimize(expr.compile(), MinimizationAlgorithm.HOPCROFT).compile();
+    }
+
+    private static String random(Random random, String chars, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; ++i)
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        return sb.toString();
+    }
+
+    @Test
+    public void speculativeTest1_randomInputs() {
+        // (a|b)*abb
+        Expression expr = Expr.concat(Expr.star(Expr.or(Expr.ch('a'), Expr.ch('b'))), Expr.str("abb"));
+        CompiledDFA dfa = compile(expr);
+        SpeculativeRecognizer recognizer = new SpeculativeRecognizer(dfa, pool, 16);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; ++i) {
+            String s = random(random, "ab", 32 + random.nextInt(2000));
+            if (i % 2 == 0)
+                s += "abb";
+            if (i % 7 == 0)
+                s = s.substring(0, s.length() / 2) + "c" + s.substring(s.length() / 2);
+
+            Assert.assertTrue(recognizer.isSpeculative(s.length()));
+            Assert.assertEquals(s, dfa.recognize(s), recognizer.recognize(s));
+        }
+    }
+
+    @Test
+    public void speculativeTest2_parity() {
+        // (aa)*(b(aa)*b(aa)*)*: runs from different states never merge
+        Expression evenAs = Expr.star(Expr.str("aa"));
+        Expression expr = Expr.concat(evenAs, Expr.star(Expr.concat(Expr.concat(Expr.ch('b'), evenAs),
+                Expr.concat(Expr.ch('b'), evenAs))));
+        CompiledDFA dfa = compile(expr);
+        SpeculativeRecognizer recognizer = new SpeculativeRecognizer(dfa, pool, 8);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200; ++i) {
+            String s = random(random, "aab", 16 + random.nextInt(500));
+            Assert.assertEquals(s, dfa.recognize(s), recognizer.recognize(s));
+        }
+    }
+
+    @Test
+    public void speculativeTest3_sequential() {
+        CompiledDFA dfa = compile(Expr.str("abc"));
+        SpeculativeRecognizer recognizer = new SpeculativeRecognizer(dfa, pool, 16);
+
+        Assert.assertFalse(recognizer.isSpeculative(3));
+        Assert.assertTrue(recognizer.recognize("abc"));
+        Assert.assertFalse(recognizer.recognize("abcd"));
+        Assert.assertFalse(new SpeculativeRecognizer(dfa, new ForkJoinPool(1), 16).isSpeculative(1000));
+    }
+}
@@ -0,0 +1,93 @@
+package expr;
+
+import dfa.ByteDFA;
+import dfa.DFA;
+import nfa.NFAOperations;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Test recognition of UTF-8 encoded input with {@link ByteDFA}.
+ */
+public class Utf8Test {
+    private static void assertSame(Expression expr, String... strings) {
+        DFA dfa = NFAOperations.determinize(expr.compile());
+        ByteDFA byteDFA = dfa.compileUtf8();
+
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(s, dfa.recognize(s), byteDFA.recognize(bytes));
+            Assert.assertEquals(s, dfa.recognize(s), byteDFA.recognize(ByteBuffer.wrap(bytes)));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes);
+            direct.flip();
+            Assert.assertEquals(s, dfa.recognize(s), byteDFA.recognize(direct));
+        }
+    }
+
+    @Test
+    public void utf8Test1_multiByte() {
+        // caf(e|é)[€-₿]
+        Expression expr = Expr.concat(Expr.concat(Expr.str("caf"), Expr.anyOf('e', 'é')), Expr.range('€', '₿'));
+        assertSame(expr, "cafe€", "café€", "café₽", "café", "cafe$", "cafè€", "");
+
+        ByteDFA byteDFA = NFAOperations.determinize(expr.compile()).compileUtf8();
+        Assert.assertTrue(byteDFA.getNumberOfClasses() <= 256);
+        Assert.assertTrue(byteDFA.recognize("café€".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void utf8Test2_supplementary() {
+        // x😀* and .*
+        assertSame(Expr.concat(Expr.ch('x'), Expr.star(Expr.str("😀"))), "x", "x😀", "x😀😀", "x😁", "😀");
+        assertSame(Expr.star(Expr.any()), "", "a", "ü", "€", "😀", "a😀b￿");
+    }
+
+    @Test
+    public void utf8Test3_invalid() {
+        ByteDFA byteDFA = NFAOperations.determinize(Expr.star(Expr.any()).compile()).compileUtf8();
+
+        Assert.assertFalse(byteDFA.recognize(new byte[]{(byte) 0x80}));
+        Assert.assertFalse(byteDFA.recognize(new byte[]{(byte) 0xC0, (byte) 0xAF})); // overlong
+        Assert.assertFalse(byteDFA.recognize(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80})); // surrogate
+        Assert.assertFalse(byteDFA.recognize(new byte[]{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}));
+        Assert.assertFalse(byteDFA.recognize(new byte[]{(byte) 0xE2, (byte) 0x82}));
+    }
+
+    @Test
+    public void utf8Test4_random() {
+        // [a-zé😀]*(€|😁)
+        Expression letter = Expr.or(Expr.or(Expr.range('a', 'z'), Expr.ch('é')), Expr.str("😀"));
+        Expression expr = Expr.concat(Expr.star(letter), Expr.or(Expr.ch('€'), Expr.str("😁")));
+
+        String[] pieces = {"a", "q", "é", "😀", "€", "😁", "ü", "ࠀ"};
+        Random random = new Random(1);
+        String[] strings = new String[500];
+        for (int i = 0; i < strings.length; ++i) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(6); j > 0; --j)
+                sb.append(pieces[random.nextInt(pieces.length)]);
+            strings[i] = sb.toString();
+        }
+        assertSame(expr, strings);
+    }
+
+    @Test
+    public void utf8Test5_offsets() {
+        ByteDFA byteDFA = NFAOperations.determinize(Expr.str("ab").compile()).compileUtf8();
+        byte[] bytes = "xaby".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertTrue(byteDFA.recognize(bytes, 1, 2));
+        Assert.assertFalse(byteDFA.recognize(bytes, 1, 3));
+
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        buf.position(1).limit(3);
+        Assert.assertTrue(byteDFA.recognize(buf));
+        Assert.assertEquals(1, buf.position());
+    }
+}